@@ -0,0 +1,39 @@
+import streams.ConsoleInputStream;
+import streams.InputStreamComponent;
+import streams.Pipeline;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+// Measures how fast piped stdin flows through ConsoleInputStream and an optional pipeline, e.g.
+//   yes "INFO [worker-3] request id=42 took 12ms" | head -c 4G | java ConsoleThroughput "encrypt|upper"
+public class ConsoleThroughput {
+    public static void main(String[] args) throws IOException {
+        Pipeline pipeline = Pipeline.parse((args.length > 0) ? args[0] : "");
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        InputStreamComponent stream = pipeline.apply(new ConsoleInputStream());
+        byte[] buf = new byte[64 * 1024];
+        long bytes = 0;
+        long newlines = 0;
+        long allocBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int n;
+        while ((n = stream.read(buf, 0, buf.length)) != -1) {
+            bytes += n;
+            for (int i = 0; i < n; i++) {
+                if (buf[i] == '\n') {
+                    newlines++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocBefore;
+        stream.close();
+
+        System.err.printf("pipeline %s: %d bytes, %d lines in %.2f s, %.1f MB/s, %d bytes allocated%n",
+                pipeline, bytes, newlines, elapsed / 1e9, (bytes / (1024.0 * 1024.0)) / (elapsed / 1e9), allocated);
+    }
+}
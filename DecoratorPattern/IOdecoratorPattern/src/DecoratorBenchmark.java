@@ -0,0 +1,246 @@
+import streams.AsyncLogWriter;
+import streams.BufferedStreamDecorator;
+import streams.ByteArrayInputStreamComponent;
+import streams.CipherDecorator;
+import streams.CompressionDecorator;
+import streams.ConsoleInputStream;
+import streams.DeflateDecorator;
+import streams.EncryptionDecorator;
+import streams.FileChannelInputStreamComponent;
+import streams.FileInputStreamComponent;
+import streams.InMemoryMetricsRegistry;
+import streams.InflateDecorator;
+import streams.InputStreamComponent;
+import streams.LoggingDecorator;
+import streams.MeteredDecorator;
+import streams.Pipeline;
+import streams.StringInputStream;
+import streams.UppercaseDecorator;
+import streams.Utf8UppercaseDecorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+// Regression suite for the streams package: every source, every decorator and common chain orders across
+// payload sizes, with warm-up and measured iterations like a JMH run. Reports ns/byte, MB/s and the
+// allocation and GC cost per pass. Run with: java DecoratorBenchmark [filter] [maxSizeInMB]
+public class DecoratorBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final long MIN_ITERATION_NANOS = 200_000_000L;
+    private static final int READ_SIZE = 8192;
+
+    private interface Case {
+        InputStreamComponent open() throws IOException, GeneralSecurityException;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        String filter = (args.length > 0) ? args[0] : "";
+        int maxMb = (args.length > 1) ? Integer.parseInt(args[1]) : 16;
+
+        System.out.printf("%-40s %8s %10s %10s %14s %10s%n",
+                "case", "size", "ns/byte", "MB/s", "alloc B/pass", "gc/iter");
+        for (int size = 1024; size <= maxMb * 1024 * 1024; size *= 32) {
+            for (Map.Entry<String, Case> entry : cases(size).entrySet()) {
+                if (entry.getKey().contains(filter)) {
+                    run(entry.getKey(), size, entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static Map<String, Case> cases(int size) throws IOException, GeneralSecurityException {
+        byte[] payload = payload(size);
+        String text = new String(payload);
+        File file = File.createTempFile("decorator-benchmark", ".log");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(payload);
+        }
+        byte[] mixed = mixedPayload(size);
+        byte[] deflated = readAll(new DeflateDecorator(new ByteArrayInputStreamComponent(payload)));
+        SecretKey key = KeyGenerator.getInstance("AES").generateKey();
+        byte[] iv = new byte[16];
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+        Map<String, Case> cases = new LinkedHashMap<>();
+        // Sources
+        cases.put("source/file", () -> new FileInputStreamComponent(file.getPath()));
+        cases.put("source/channel-mapped", () -> new FileChannelInputStreamComponent(file.getPath(),
+                FileChannelInputStreamComponent.Mode.MAPPED));
+        cases.put("source/channel-positional", () -> new FileChannelInputStreamComponent(file.getPath(),
+                FileChannelInputStreamComponent.Mode.POSITIONAL));
+        cases.put("source/string", () -> new StringInputStream(text));
+        cases.put("source/console-pipe", () -> new ConsoleInputStream(pipe(payload)));
+        // Single decorators over an in-memory source
+        cases.put("decorator/encrypt", () -> new EncryptionDecorator(bytes(payload)));
+        cases.put("decorator/upper", () -> new UppercaseDecorator(bytes(payload)));
+        cases.put("decorator/upper-utf8", () -> new Utf8UppercaseDecorator(bytes(payload)));
+        cases.put("decorator/upper-utf8-mixed", () -> new Utf8UppercaseDecorator(bytes(mixed)));
+        cases.put("decorator/compress", () -> new CompressionDecorator(bytes(payload)));
+        cases.put("decorator/buffer", () -> new BufferedStreamDecorator(bytes(payload)));
+        // One writer for every pass, so the printer thread starts once and passes measure only the logging
+        AsyncLogWriter writer = new AsyncLogWriter(AsyncLogWriter.DEFAULT_CAPACITY,
+                AsyncLogWriter.OverflowPolicy.DROP, 1, 0, discard);
+        cases.put("decorator/log", () -> new LoggingDecorator(bytes(payload), writer,
+                LoggingDecorator.DEFAULT_BATCH_BYTES));
+        cases.put("decorator/aes-ctr", () -> CipherDecorator.encryptAesCtr(bytes(payload), key, iv));
+        cases.put("decorator/deflate", () -> new DeflateDecorator(bytes(payload)));
+        cases.put("decorator/inflate", () -> new InflateDecorator(bytes(deflated)));
+        // Chain orders, as built by hand and as fused by Pipeline
+        cases.put("chain/encrypt|upper", () -> new UppercaseDecorator(new EncryptionDecorator(bytes(payload))));
+        cases.put("chain/upper|encrypt", () -> new EncryptionDecorator(new UppercaseDecorator(bytes(payload))));
+        cases.put("chain/encrypt|upper|compress", () -> new CompressionDecorator(
+                new UppercaseDecorator(new EncryptionDecorator(bytes(payload)))));
+        Pipeline fused = Pipeline.parse("encrypt|upper|compress");
+        cases.put("pipeline/encrypt|upper|compress", () -> fused.apply(bytes(payload)));
+        Pipeline barrier = Pipeline.parse("encrypt|upper|buffer|compress");
+        cases.put("pipeline/encrypt|upper|buffer|compress", () -> barrier.apply(bytes(payload)));
+        // Metrics overhead: the same fused chain without metering, and with every stage metered
+        cases.put("metrics/off", () -> fused.apply(bytes(payload)));
+        // A registry per pass: a shared one would grow by a chain's stages every pass
+        cases.put("metrics/on", () -> MeteredDecorator.instrument(fused.apply(bytes(payload)), "bench",
+                new InMemoryMetricsRegistry()));
+        return cases;
+    }
+
+    private static void run(String name, int size, Case benchmark) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(benchmark);
+        }
+        double nsPerByte = 0;
+        double allocPerPass = 0;
+        double gcPerIteration = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            double[] result = iteration(benchmark);
+            nsPerByte += result[0] / MEASURED_ITERATIONS;
+            allocPerPass += result[1] / MEASURED_ITERATIONS;
+            gcPerIteration += result[2] / MEASURED_ITERATIONS;
+        }
+        System.out.printf("%-40s %8s %10.3f %10.1f %14.0f %10.1f%n", name, label(size), nsPerByte,
+                1e9 / nsPerByte / (1024 * 1024), allocPerPass, gcPerIteration);
+    }
+
+    // Drains fresh streams until the iteration has run long enough; returns ns/byte, bytes allocated per pass
+    // and collections per iteration
+    private static double[] iteration(Case benchmark) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long gcBefore = gcCount();
+        long allocBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long bytes = 0;
+        long passes = 0;
+        byte[] buf = new byte[READ_SIZE];
+        long checksum = 0;
+        do {
+            InputStreamComponent stream = benchmark.open();
+            int n;
+            while ((n = stream.read(buf, 0, buf.length)) != -1) {
+                bytes += n;
+                checksum += buf[0];
+            }
+            stream.close();
+            passes++;
+        } while (System.nanoTime() - start < MIN_ITERATION_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocBefore;
+        if (checksum == 42) {
+            System.out.println(); // Keeps the JIT from discarding the loop
+        }
+        return new double[] {(double) elapsed / bytes, (double) allocated / passes, gcCount() - gcBefore};
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static InputStreamComponent bytes(byte[] payload) {
+        return new ByteArrayInputStreamComponent(payload);
+    }
+
+    // Feeds the payload through a pipe from a writer thread, as if it were piped into stdin
+    private static PipedInputStream pipe(byte[] payload) throws IOException {
+        PipedInputStream in = new PipedInputStream(65536);
+        PipedOutputStream out = new PipedOutputStream(in);
+        Thread writer = new Thread(() -> {
+            try (out) {
+                out.write(payload);
+            } catch (IOException e) {
+                // Reader closed early
+            }
+        }, "pipe-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return in;
+    }
+
+    private static byte[] readAll(InputStreamComponent stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[65536];
+        int n;
+        while ((n = stream.read(buf, 0, buf.length)) != -1) {
+            out.write(buf, 0, n);
+        }
+        stream.close();
+        return out.toByteArray();
+    }
+
+    // Log-like lines; no empty lines so the console source reads all of them
+    private static byte[] payload(int size) {
+        String[] levels = {"INFO", "DEBUG", "WARN", "ERROR"};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 128);
+        while (sb.length() < size) {
+            sb.append(levels[random.nextInt(levels.length)]).append(" [worker-").append(random.nextInt(16))
+                    .append("] request id=").append(Long.toHexString(random.nextLong()))
+                    .append(" took ").append(random.nextInt(500)).append("ms\n");
+        }
+        sb.setLength(size);
+        return sb.toString().getBytes();
+    }
+
+    // Same log lines with accented Latin, Cyrillic and CJK words mixed in, to exercise the decoder path
+    private static byte[] mixedPayload(int size) {
+        String[] words = {"gr\u00fc\u00dfe", "caf\u00e9", "\u043f\u0440\u0438\u0432\u0435\u0442", "\u65e5\u672c\u8a9e"};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 128);
+        byte[] ascii = payload(size);
+        int lineStart = 0;
+        for (int i = 0; i < ascii.length && sb.length() < size; i++) {
+            if (ascii[i] == '\n') {
+                sb.append(new String(ascii, lineStart, i - lineStart, StandardCharsets.US_ASCII))
+                        .append(' ').append(words[random.nextInt(words.length)]).append('\n');
+                lineStart = i + 1;
+            }
+        }
+        byte[] encoded = sb.toString().getBytes(StandardCharsets.UTF_8);
+        return (encoded.length > size) ? Arrays.copyOf(encoded, size) : encoded;
+    }
+
+    private static String label(int size) {
+        return (size >= 1024 * 1024) ? (size / (1024 * 1024)) + " MB" : (size / 1024) + " KB";
+    }
+}
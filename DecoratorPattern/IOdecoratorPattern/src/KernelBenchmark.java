@@ -0,0 +1,109 @@
+import streams.ByteKernel;
+import streams.ByteKernels;
+
+// Scalar vs Vector API byte kernels across payload sizes. Run with:
+//   javac --add-modules jdk.incubator.vector streams/vector/*.java
+//   java --add-modules jdk.incubator.vector KernelBenchmark [maxSizeInMB]
+public class KernelBenchmark {
+    private static final long BYTES_PER_RUN = 256L * 1024 * 1024;
+
+    public static void main(String[] args) {
+        int maxMb = (args.length > 0) ? Integer.parseInt(args[0]) : 64;
+        ByteKernel scalar = ByteKernels.scalar();
+        ByteKernel vector = ByteKernels.vector();
+        if (vector == null) {
+            System.out.println("Vector API not available, only the scalar kernels are measured.");
+        }
+
+        System.out.printf("%-10s %-10s %14s %14s %14s%n", "size", "op", "per-byte", "scalar", "vector");
+        for (long size = 1024; size <= maxMb * 1024L * 1024L; size *= 16) {
+            byte[] buf = payload((int) size);
+            for (String op : new String[] {"xor", "subtract", "upper"}) {
+                double perByte = measurePerByte(buf, op);
+                double scalarRate = measure(scalar, buf, op);
+                String vectorRate = (vector != null) ? String.format("%.1f MB/s", measure(vector, buf, op)) : "-";
+                System.out.printf("%-10s %-10s %9.1f MB/s %9.1f MB/s %14s%n",
+                        label(size), op, perByte, scalarRate, vectorRate);
+            }
+        }
+    }
+
+    // Repeats the kernel over the buffer until about BYTES_PER_RUN bytes went through, after a warm-up pass
+    private static double measure(ByteKernel kernel, byte[] buf, String op) {
+        long repeats = Math.max(1, BYTES_PER_RUN / buf.length);
+        run(kernel, buf, op, repeats);
+        long start = System.nanoTime();
+        run(kernel, buf, op, repeats);
+        long elapsed = System.nanoTime() - start;
+        return (repeats * buf.length / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    private static void run(ByteKernel kernel, byte[] buf, String op, long repeats) {
+        for (long r = 0; r < repeats; r++) {
+            switch (op) {
+                case "xor":
+                    kernel.xor(buf, 0, buf.length, 5);
+                    break;
+                case "subtract":
+                    kernel.subtract(buf, 0, buf.length, 1);
+                    break;
+                default:
+                    kernel.toUpperCase(buf, 0, buf.length);
+            }
+        }
+    }
+
+    // The original decorators transformed one int at a time through a method call per byte
+    private static double measurePerByte(byte[] buf, String op) {
+        long repeats = Math.max(1, BYTES_PER_RUN / buf.length / 4);
+        runPerByte(buf, op, repeats);
+        long start = System.nanoTime();
+        long checksum = runPerByte(buf, op, repeats);
+        long elapsed = System.nanoTime() - start;
+        if (checksum == 42) {
+            System.out.println(); // Keeps the JIT from discarding the loop
+        }
+        return (repeats * buf.length / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    private static long runPerByte(byte[] buf, String op, long repeats) {
+        long checksum = 0;
+        for (long r = 0; r < repeats; r++) {
+            for (int i = 0; i < buf.length; i++) {
+                int data = buf[i] & 0xFF;
+                switch (op) {
+                    case "xor":
+                        checksum += encrypt(data);
+                        break;
+                    case "subtract":
+                        checksum += compress(data);
+                        break;
+                    default:
+                        checksum += Character.toUpperCase((char) data);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static int encrypt(int data) {
+        return data ^ 5;
+    }
+
+    private static int compress(int data) {
+        return data - 1;
+    }
+
+    private static byte[] payload(int size) {
+        byte[] text = "Hii I am Javed and i am implementing the decorator pattern for input and output stream. ".getBytes();
+        byte[] buf = new byte[size];
+        for (int i = 0; i < size; i++) {
+            buf[i] = text[i % text.length];
+        }
+        return buf;
+    }
+
+    private static String label(long size) {
+        return (size >= 1024 * 1024) ? (size / (1024 * 1024)) + " MB" : (size / 1024) + " KB";
+    }
+}
@@ -1,3 +1,4 @@
+import streams.Pipeline;
 import streams.StreamController;
 
 import java.util.Scanner;
@@ -5,12 +6,21 @@ import java.util.Scanner;
 public class MainApp {
 
     public static void main(String[] args) {
-        StreamController controller = new StreamController();
+        // An optional pipeline spec such as "encrypt|upper|compress" skips the decorator prompts; a following
+        // --parallel processes the file in chunks on all cores
+        boolean parallel = args.length > 1 && args[1].equals("--parallel");
+        StreamController controller = (args.length > 0)
+                ? new StreamController(Pipeline.parse(args[0]))
+                : new StreamController();
         Scanner scanner = new Scanner(System.in);
 
         try {
             System.out.println("\nReading from File:");
-            controller.processFile("test.txt");
+            if (parallel) {
+                controller.processFileParallel("test.txt");
+            } else {
+                controller.processFile("test.txt");
+            }
 
             System.out.println("\n\nReading from String:");
             controller.processString("Hello, Decorator Pattern from String!");
@@ -0,0 +1,367 @@
+import streams.AsyncLogWriter;
+import streams.BufferedStreamDecorator;
+import streams.ByteArrayInputStreamComponent;
+import streams.CipherDecorator;
+import streams.CompressionDecorator;
+import streams.ConsoleSink;
+import streams.DataStreamDecorator;
+import streams.DeflateDecorator;
+import streams.EncryptionDecorator;
+import streams.FileChannelInputStreamComponent;
+import streams.FileChannelSink;
+import streams.FileInputStreamComponent;
+import streams.FusedTransformDecorator;
+import streams.InflateDecorator;
+import streams.InputStreamComponent;
+import streams.LoggingDecorator;
+import streams.OutputSink;
+import streams.ParallelChunkSource;
+import streams.Pipeline;
+import streams.StringInputStream;
+import streams.UppercaseDecorator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+// Rough throughput comparison of the decorator chain, run with: java StreamBenchmark [sizeInMB]
+public class StreamBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException, GeneralSecurityException {
+        int sizeMb = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+        String payload = payload(sizeMb * 1024 * 1024);
+
+        System.out.println("Payload: " + sizeMb + " MB, chain: Encrypt -> Uppercase -> Compress");
+        for (int round = 1; round <= ROUNDS; round++) {
+            double bytePath = measure(payload, false);
+            double blockPath = measure(payload, true);
+            System.out.printf("Round %d: byte path %.1f MB/s, block path %.1f MB/s (x%.1f)%n",
+                    round, bytePath, blockPath, blockPath / bytePath);
+        }
+
+        System.out.println("\nFusion: block path, " + sizeMb + " MB");
+        for (int round = 1; round <= ROUNDS; round++) {
+            double single = measureChain(payload.length(), new EncryptionDecorator(new StringInputStream(payload)));
+            double deep = measureChain(payload.length(), deepChain(payload));
+            double fused = measureChain(payload.length(), FusedTransformDecorator.fuse(deepChain(payload)));
+            System.out.printf("Round %d: single decorator %.1f MB/s, Encrypt+Uppercase+Compress %.1f MB/s,"
+                    + " fused %.1f MB/s%n", round, single, deep, fused);
+        }
+
+        SecretKey key = KeyGenerator.getInstance("AES").generateKey();
+        byte[] iv = new byte[16];
+        new SecureRandom().nextBytes(iv);
+        System.out.println("\nAES-CTR: " + sizeMb + " MB, per-byte read() vs 8 KB block reads");
+        for (int round = 1; round <= ROUNDS; round++) {
+            double bytePath = measureCipher(payload, key, iv, false);
+            double blockPath = measureCipher(payload, key, iv, true);
+            System.out.printf("Round %d: byte path %.1f MB/s, block path %.1f MB/s (x%.1f)%n",
+                    round, bytePath, blockPath, blockPath / bytePath);
+        }
+
+        System.out.println("\nLogging: " + sizeMb + " MB, old per-byte println vs async batched LoggingDecorator");
+        PrintStream logDiscard = new PrintStream(OutputStream.nullOutputStream());
+        AsyncLogWriter writer = new AsyncLogWriter(AsyncLogWriter.DEFAULT_CAPACITY,
+                AsyncLogWriter.OverflowPolicy.DROP, 1, 0, logDiscard);
+        for (int round = 1; round <= ROUNDS; round++) {
+            PrintStream stdout = System.out;
+            PrintStream discard = logDiscard;
+            System.setOut(discard);
+            long start = System.nanoTime();
+            drain(new PerByteLogging(new StringInputStream(payload), discard), true);
+            long perByteNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            InputStreamComponent logged = new LoggingDecorator(new StringInputStream(payload), writer,
+                    LoggingDecorator.DEFAULT_BATCH_BYTES);
+            drain(logged, true);
+            logged.close();
+            long asyncNanos = System.nanoTime() - start;
+            System.setOut(stdout);
+            System.out.printf("Round %d: per-byte %.1f MB/s, async batched %.1f MB/s%n", round,
+                    (payload.length() / (1024.0 * 1024.0)) / (perByteNanos / 1e9),
+                    (payload.length() / (1024.0 * 1024.0)) / (asyncNanos / 1e9));
+        }
+
+        byte[] logs = logPayload(sizeMb * 1024 * 1024);
+        System.out.println("\nDeflate: " + sizeMb + " MB of generated log lines, 256 KB blocks");
+        for (int level = 1; level <= 9; level++) {
+            long start = System.nanoTime();
+            byte[] compressed = readAll(new DeflateDecorator(new ByteArrayInputStreamComponent(logs),
+                    level, DeflateDecorator.DEFAULT_BLOCK_SIZE));
+            long deflateNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            byte[] restored = readAll(new InflateDecorator(new ByteArrayInputStreamComponent(compressed)));
+            long inflateNanos = System.nanoTime() - start;
+            if (!Arrays.equals(logs, restored)) {
+                throw new IllegalStateException("Round trip mismatch at level " + level);
+            }
+            System.out.printf("  level %d: ratio %5.2f, deflate %7.1f MB/s, inflate %7.1f MB/s%n", level,
+                    (double) logs.length / compressed.length,
+                    (logs.length / (1024.0 * 1024.0)) / (deflateNanos / 1e9),
+                    (logs.length / (1024.0 * 1024.0)) / (inflateNanos / 1e9));
+        }
+
+        File file = File.createTempFile("stream-benchmark", ".txt");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(payload.getBytes());
+        }
+
+        for (boolean block : new boolean[] {false, true}) {
+            System.out.println("\nFile: " + sizeMb + " MB, " + (block ? "8 KB block" : "byte-at-a-time")
+                    + " reads through BufferedStreamDecorator");
+            for (int round = 1; round <= ROUNDS; round++) {
+                measureFile(file, "pass-through", 0, false, block);
+                measureFile(file, "heap 64 KB", 65536, false, block);
+                measureFile(file, "direct 64 KB", 65536, true, block);
+            }
+        }
+
+        System.out.println("\nFile: " + sizeMb + " MB, fused Encrypt+Uppercase+Compress, sequential vs parallel chunks");
+        for (int round = 1; round <= ROUNDS; round++) {
+            InputStreamComponent sequential = FusedTransformDecorator.fuse(new CompressionDecorator(new UppercaseDecorator(
+                    new EncryptionDecorator(new FileChannelInputStreamComponent(file.getPath(),
+                            FileChannelInputStreamComponent.Mode.POSITIONAL)))));
+            InputStreamComponent parallel = ParallelChunkSource.open(file.toPath(),
+                    Pipeline.parse("encrypt|upper|compress"), 1024 * 1024, ForkJoinPool.commonPool());
+            double sequentialRate = measureChain(file.length(), sequential);
+            double parallelRate = measureChain(file.length(), parallel);
+            System.out.printf("Round %d: sequential %.1f MB/s, parallel (%d workers) %.1f MB/s%n",
+                    round, sequentialRate, ForkJoinPool.commonPool().getParallelism(), parallelRate);
+        }
+
+        System.out.println("\nFile to file: " + sizeMb + " MB, block copy through the heap vs zero-copy transferTo");
+        File copy = File.createTempFile("stream-benchmark-copy", ".txt");
+        copy.deleteOnExit();
+        for (int round = 1; round <= ROUNDS; round++) {
+            double heapCopy = measureTransfer(new DataStreamDecorator(new FileInputStreamComponent(file.getPath())),
+                    file.length(), copy);
+            double zeroCopy = measureTransfer(new FileInputStreamComponent(file.getPath()), file.length(), copy);
+            System.out.printf("Round %d: block copy %.1f MB/s, transferTo %.1f MB/s%n", round, heapCopy, zeroCopy);
+        }
+
+        System.out.println("\nConsole output: " + sizeMb + " MB, per-byte print vs ConsoleSink");
+        for (int round = 1; round <= ROUNDS; round++) {
+            PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+            InputStreamComponent stream = new StringInputStream(payload);
+            long start = System.nanoTime();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = stream.read(buf, 0, buf.length)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    discard.print((char) (buf[i] & 0xFF));
+                }
+            }
+            long perByteNanos = System.nanoTime() - start;
+
+            stream = new StringInputStream(payload);
+            start = System.nanoTime();
+            stream.transferTo(new ConsoleSink(discard));
+            long sinkNanos = System.nanoTime() - start;
+            System.out.printf("Round %d: per-byte print %.1f MB/s, ConsoleSink %.1f MB/s%n", round,
+                    (payload.length() / (1024.0 * 1024.0)) / (perByteNanos / 1e9),
+                    (payload.length() / (1024.0 * 1024.0)) / (sinkNanos / 1e9));
+        }
+
+        System.out.println("\nFile: " + sizeMb + " MB, 8 KB block reads through FileChannelInputStreamComponent");
+        for (int round = 1; round <= ROUNDS; round++) {
+            for (FileChannelInputStreamComponent.Mode mode : FileChannelInputStreamComponent.Mode.values()) {
+                InputStreamComponent stream = new FileChannelInputStreamComponent(file.getPath(), mode);
+                long start = System.nanoTime();
+                consume(drain(stream, true));
+                long elapsed = System.nanoTime() - start;
+                stream.close();
+                System.out.printf("  %-13s %8.1f MB/s%n", mode, (file.length() / (1024.0 * 1024.0)) / (elapsed / 1e9));
+            }
+        }
+    }
+
+    private static double measure(String payload, boolean block) throws IOException {
+        InputStreamComponent stream = deepChain(payload);
+
+        long start = System.nanoTime();
+        long checksum = drain(stream, block);
+        long elapsed = System.nanoTime() - start;
+        stream.close();
+
+        consume(checksum);
+        return (payload.length() / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    private static double measureTransfer(InputStreamComponent stream, long length, File target) throws IOException {
+        OutputSink sink = new FileChannelSink(target.getPath());
+        long start = System.nanoTime();
+        long copied = stream.transferTo(sink);
+        long elapsed = System.nanoTime() - start;
+        sink.close();
+        stream.close();
+        if (copied != length) {
+            throw new IllegalStateException("Copied " + copied + " of " + length + " bytes");
+        }
+        return (length / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    private static double measureCipher(String payload, SecretKey key, byte[] iv, boolean block)
+            throws IOException, GeneralSecurityException {
+        InputStreamComponent stream = CipherDecorator.encryptAesCtr(new StringInputStream(payload), key, iv);
+
+        long start = System.nanoTime();
+        long checksum = drain(stream, block);
+        long elapsed = System.nanoTime() - start;
+        stream.close();
+
+        consume(checksum);
+        return (payload.length() / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    private static InputStreamComponent deepChain(String payload) {
+        return new CompressionDecorator(
+                new UppercaseDecorator(new EncryptionDecorator(new StringInputStream(payload))));
+    }
+
+    private static double measureChain(long length, InputStreamComponent stream) throws IOException {
+        long start = System.nanoTime();
+        long checksum = drain(stream, true);
+        long elapsed = System.nanoTime() - start;
+        stream.close();
+
+        consume(checksum);
+        return (length / (1024.0 * 1024.0)) / (elapsed / 1e9);
+    }
+
+    // bufferSize 0 reads the file source directly, like the old forwarding BufferedStreamDecorator did
+    private static void measureFile(File file, String label, int bufferSize, boolean direct,
+                                    boolean block) throws IOException {
+        CountingDecorator source = new CountingDecorator(new FileInputStreamComponent(file.getPath()));
+        InputStreamComponent stream = (bufferSize == 0) ? source
+                : new BufferedStreamDecorator(source, bufferSize, direct);
+
+        long start = System.nanoTime();
+        long checksum = drain(stream, block);
+        long elapsed = System.nanoTime() - start;
+        stream.close();
+
+        consume(checksum);
+        double mbPerSec = (file.length() / (1024.0 * 1024.0)) / (elapsed / 1e9);
+        System.out.printf("  %-13s %10d reads, %8.1f MB/s%n", label, source.calls, mbPerSec);
+    }
+
+    private static long drain(InputStreamComponent stream, boolean block) throws IOException {
+        long checksum = 0;
+        if (block) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = stream.read(buf, 0, buf.length)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    checksum += buf[i];
+                }
+            }
+        } else {
+            int data;
+            while ((data = stream.read()) != -1) {
+                checksum += (byte) data;
+            }
+        }
+        return checksum;
+    }
+
+    private static void consume(long checksum) {
+        if (checksum == 42) {
+            System.out.println(); // Keeps the JIT from discarding the loop
+        }
+    }
+
+    private static byte[] readAll(InputStreamComponent stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[65536];
+        int n;
+        while ((n = stream.read(buf, 0, buf.length)) != -1) {
+            out.write(buf, 0, n);
+        }
+        stream.close();
+        return out.toByteArray();
+    }
+
+    // Log-like lines with varying fields, closer to real archives than a repeated sentence
+    private static byte[] logPayload(int size) {
+        String[] levels = {"INFO", "DEBUG", "WARN", "ERROR"};
+        String[] paths = {"/api/orders", "/api/users", "/health", "/api/stock", "/login"};
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 128);
+        long millis = 1_700_000_000_000L;
+        while (sb.length() < size) {
+            millis += random.nextInt(50);
+            sb.append(millis).append(' ').append(levels[random.nextInt(levels.length)])
+                    .append(" [worker-").append(random.nextInt(16)).append("] GET ")
+                    .append(paths[random.nextInt(paths.length)]).append(" id=")
+                    .append(Long.toHexString(random.nextLong())).append(" took ")
+                    .append(random.nextInt(500)).append("ms\n");
+        }
+        sb.setLength(size);
+        return sb.toString().getBytes();
+    }
+
+    private static String payload(int size) {
+        String text = "Hii I am Javed and i am implementing the decorator pattern for input and output stream. ";
+        StringBuilder sb = new StringBuilder(size);
+        while (sb.length() < size) {
+            sb.append(text);
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+
+    // The LoggingDecorator as it used to be: one concatenated println per byte
+    private static class PerByteLogging extends DataStreamDecorator {
+        private final PrintStream out;
+
+        PerByteLogging(InputStreamComponent component, PrintStream out) {
+            super(component);
+            this.out = out;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            for (int i = off; i < off + n; i++) {
+                out.println("[LOG]: Read character - " + (char) (buf[i] & 0xFF));
+            }
+            return n;
+        }
+    }
+
+    // Counts the reads that reach the source, i.e. the read syscalls for a file
+    private static class CountingDecorator extends DataStreamDecorator {
+        long calls;
+
+        CountingDecorator(InputStreamComponent component) {
+            super(component);
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            calls++;
+            return super.read(buf, off, len);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            calls++;
+            return component.read(dst);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package streams;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Hands byte ranges from one reader thread to a background printer through a bounded lock-free ring buffer.
+// The printer thread starts with the first record, sleeps while the ring is empty and stops on close().
+public class AsyncLogWriter {
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final long FULL_PARK_NANOS = 1_000_000; // BLOCK: how long the reader waits for room
+
+    private final long[] offsets;
+    private final long[] lengths;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next slot the printer takes
+    private final AtomicLong tail = new AtomicLong(); // next slot the reader fills
+    private final OverflowPolicy policy;
+    private final int sampleEvery;
+    private final int maxRecordsPerSecond;
+    private final PrintStream out;
+    private volatile boolean closed;
+    private volatile boolean sleeping; // the printer is parked, or about to be, and must be unparked
+
+    // Only touched by the producing thread
+    private Thread printer; // null until the first record
+    private long offered;
+    private long dropped;
+    private long windowStart;
+    private int windowCount;
+
+    public AsyncLogWriter() {
+        this(DEFAULT_CAPACITY, OverflowPolicy.DROP, 1, 0, System.out);
+    }
+
+    // capacity is rounded up to a power of two; sampleEvery 1 logs every batch; maxRecordsPerSecond 0 is unlimited
+    public AsyncLogWriter(int capacity, OverflowPolicy policy, int sampleEvery, int maxRecordsPerSecond,
+                          PrintStream out) {
+        if (capacity <= 0 || sampleEvery <= 0 || maxRecordsPerSecond < 0) {
+            throw new IllegalArgumentException("Invalid log writer settings");
+        }
+        int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.offsets = new long[size];
+        this.lengths = new long[size];
+        this.mask = size - 1;
+        this.policy = policy;
+        this.sampleEvery = sampleEvery;
+        this.maxRecordsPerSecond = maxRecordsPerSecond;
+        this.out = out;
+    }
+
+    // Called by the single reading thread; never blocks under the DROP policy
+    public void log(long offset, long length) {
+        if (offered++ % sampleEvery != 0) {
+            return;
+        }
+        if (maxRecordsPerSecond > 0 && !withinRate()) {
+            dropped++;
+            return;
+        }
+        long t = tail.get();
+        while (t - head.get() > mask) {
+            if (policy == OverflowPolicy.DROP) {
+                dropped++;
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+        int slot = (int) (t & mask);
+        offsets[slot] = offset;
+        lengths[slot] = length;
+        tail.set(t + 1); // publishes the slot to the printer, ordered before the read of sleeping
+        if (printer == null) {
+            printer = new Thread(this::drainLoop, "async-log-writer");
+            printer.setDaemon(true);
+            printer.start();
+        } else if (sleeping) {
+            LockSupport.unpark(printer);
+        }
+    }
+
+    // Waits until everything queued is printed, then prints a summary; the writer keeps running for the next
+    // reader. Drops are counted from the previous summary.
+    public void finish(long totalBytes) {
+        while (printer != null && printer.isAlive() && head.get() < tail.get()) {
+            Thread.yield(); // the printer is awake and has at most a ring's worth of short lines left
+        }
+        summary(totalBytes);
+    }
+
+    // Prints everything still queued plus a summary, then stops the printer thread
+    public void close(long totalBytes) {
+        closed = true;
+        if (printer != null) {
+            LockSupport.unpark(printer);
+            try {
+                printer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        summary(totalBytes);
+    }
+
+    private void summary(long totalBytes) {
+        out.println("[LOG]: " + totalBytes + " bytes read, " + dropped + " log records dropped");
+        dropped = 0;
+    }
+
+    private boolean withinRate() {
+        long now = System.nanoTime();
+        if (now - windowStart >= 1_000_000_000L) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        return windowCount++ < maxRecordsPerSecond;
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(64);
+        while (true) {
+            boolean done = closed;
+            long h = head.get();
+            long t = tail.get();
+            if (h == t) {
+                if (done) {
+                    return;
+                }
+                // Announce the nap before the last look at tail, so a record published meanwhile unparks us
+                sleeping = true;
+                if (tail.get() == h && !closed) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+                continue;
+            }
+            for (; h < t; h++) {
+                int slot = (int) (h & mask);
+                long offset = offsets[slot];
+                long length = lengths[slot];
+                line.setLength(0);
+                line.append("[LOG]: Read bytes ").append(offset).append('-').append(offset + length - 1)
+                        .append(" (").append(length).append(" bytes)");
+                out.println(line);
+            }
+            head.lazySet(t); // frees the slots for the reader
+        }
+    }
+}
@@ -1,21 +1,101 @@
 package streams;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
-public class BufferedStreamDecorator extends InputStreamComponent {
-    protected InputStreamComponent component;
+public class BufferedStreamDecorator extends DataStreamDecorator {
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final int bufferSize;
+    private byte[] buffer;          // heap mode
+    private ByteBuffer directBuffer; // direct mode, kept in read (flipped) state
+    private int pos;
+    private int limit;
 
     public BufferedStreamDecorator(InputStreamComponent component) {
-        this.component = component;
+        this(component, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    public BufferedStreamDecorator(InputStreamComponent component, int bufferSize) {
+        this(component, bufferSize, false);
+    }
+
+    public BufferedStreamDecorator(InputStreamComponent component, int bufferSize, boolean direct) {
+        super(component);
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+        if (direct) {
+            directBuffer = ByteBuffer.allocateDirect(bufferSize);
+            directBuffer.flip();
+        } else {
+            buffer = new byte[bufferSize];
+        }
+    }
+
+    public boolean isDirect() {
+        return directBuffer != null;
     }
 
     @Override
     public int read() throws IOException {
-        return component.read();
+        if (available() == 0 && fill() == -1) {
+            return -1;
+        }
+        if (directBuffer != null) {
+            return directBuffer.get() & 0xFF;
+        }
+        return buffer[pos++] & 0xFF;
     }
 
     @Override
-    public void close() throws IOException {
-        component.close();
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (available() == 0) {
+            // Large heap reads skip the buffer and go straight to the component
+            if (directBuffer == null && len >= bufferSize) {
+                return component.read(buf, off, len);
+            }
+            if (fill() == -1) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, available());
+        if (directBuffer != null) {
+            directBuffer.get(buf, off, n);
+        } else {
+            System.arraycopy(buffer, pos, buf, off, n);
+            pos += n;
+        }
+        return n;
+    }
+
+    private int available() {
+        return (directBuffer != null) ? directBuffer.remaining() : limit - pos;
+    }
+
+    // Refill the buffer with a single read from the wrapped component
+    private int fill() throws IOException {
+        int n;
+        if (directBuffer != null) {
+            directBuffer.clear();
+            do {
+                n = component.read(directBuffer);
+            } while (n == 0);
+            directBuffer.flip();
+        } else {
+            pos = 0;
+            limit = 0;
+            do {
+                n = component.read(buffer, 0, bufferSize);
+            } while (n == 0);
+            if (n > 0) {
+                limit = n;
+            }
+        }
+        return n;
     }
 }
@@ -0,0 +1,43 @@
+package streams;
+
+import java.io.IOException;
+
+public class ByteArrayInputStreamComponent extends InputStreamComponent {
+    private final byte[] data;
+    private final int limit;
+    private int pos;
+
+    public ByteArrayInputStreamComponent(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public ByteArrayInputStreamComponent(byte[] data, int off, int len) {
+        this.data = data;
+        this.pos = off;
+        this.limit = off + len;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return (pos < limit) ? data[pos++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= limit) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(data, pos, buf, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pos = limit;
+    }
+}
@@ -0,0 +1,43 @@
+package streams;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Collects the output in memory
+public class ByteArraySink extends OutputSink {
+    private byte[] data;
+    private int size;
+
+    public ByteArraySink() {
+        this(8192);
+    }
+
+    public ByteArraySink(int initialCapacity) {
+        data = new byte[Math.max(initialCapacity, 16)];
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        if (size + len > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + len));
+        }
+        System.arraycopy(buf, off, data, size, len);
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
@@ -0,0 +1,8 @@
+package streams;
+
+// Block implementations of the byte transforms used by the decorators
+public interface ByteKernel {
+    void xor(byte[] buf, int off, int len, int key);
+    void subtract(byte[] buf, int off, int len, int amount);
+    void toUpperCase(byte[] buf, int off, int len);
+}
@@ -0,0 +1,66 @@
+package streams;
+
+public final class ByteKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "streams.vector.VectorByteKernel";
+
+    private static final ByteKernel SCALAR = new ScalarByteKernel();
+    private static final ByteKernel VECTOR = loadVectorKernel();
+    private static final ByteKernel DEFAULT =
+            (VECTOR != null && Boolean.getBoolean("streams.vector")) ? VECTOR : SCALAR;
+
+    private ByteKernels() {
+    }
+
+    // Kernel used by decorators that are not given one: vectorized when -Dstreams.vector=true and available
+    public static ByteKernel get() {
+        return DEFAULT;
+    }
+
+    public static ByteKernel scalar() {
+        return SCALAR;
+    }
+
+    // Returns null when the Vector API module or the vector kernel classes are missing
+    public static ByteKernel vector() {
+        return VECTOR;
+    }
+
+    private static ByteKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (ByteKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // Fall back to the scalar kernel
+        }
+    }
+
+    private static final class ScalarByteKernel implements ByteKernel {
+        @Override
+        public void xor(byte[] buf, int off, int len, int key) {
+            for (int i = off; i < off + len; i++) {
+                buf[i] = (byte) (buf[i] ^ key);
+            }
+        }
+
+        @Override
+        public void subtract(byte[] buf, int off, int len, int amount) {
+            for (int i = off; i < off + len; i++) {
+                buf[i] = (byte) (buf[i] - amount);
+            }
+        }
+
+        // ASCII only: the Latin-1 uppercase of some bytes (0xFF, 0xB5) does not fit in a byte
+        @Override
+        public void toUpperCase(byte[] buf, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                int c = buf[i];
+                if (c >= 'a' && c <= 'z') {
+                    buf[i] = (byte) (c - ('a' - 'A'));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package streams;
+
+// A stateless byte-to-byte mapping; decorators that implement it can be fused into one lookup table
+public interface ByteTransform {
+    int transform(int data);
+}
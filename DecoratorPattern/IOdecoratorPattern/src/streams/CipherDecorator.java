@@ -0,0 +1,84 @@
+package streams;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+// Streams the wrapped component through an initialized Cipher a block at a time
+public class CipherDecorator extends DataStreamDecorator {
+    public static final String AES_CTR = "AES/CTR/NoPadding";
+    private static final int BLOCK_SIZE = 8192;
+
+    private final Cipher cipher;
+    private final byte[] in = new byte[BLOCK_SIZE];
+    private byte[] out;
+    private int outPos;
+    private int outLimit;
+    private boolean finished;
+
+    public CipherDecorator(InputStreamComponent stream, Cipher cipher) {
+        super(stream);
+        this.cipher = cipher;
+        this.out = new byte[cipher.getOutputSize(BLOCK_SIZE)];
+    }
+
+    // AES in counter mode keeps the output the same length as the input; iv must be 16 bytes
+    public static CipherDecorator encryptAesCtr(InputStreamComponent stream, SecretKey key, byte[] iv)
+            throws GeneralSecurityException {
+        return new CipherDecorator(stream, aesCtr(Cipher.ENCRYPT_MODE, key, iv));
+    }
+
+    public static CipherDecorator decryptAesCtr(InputStreamComponent stream, SecretKey key, byte[] iv)
+            throws GeneralSecurityException {
+        return new CipherDecorator(stream, aesCtr(Cipher.DECRYPT_MODE, key, iv));
+    }
+
+    private static Cipher aesCtr(int mode, SecretKey key, byte[] iv) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(AES_CTR);
+        cipher.init(mode, key, new IvParameterSpec(iv));
+        return cipher;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (outPos == outLimit) {
+            if (finished) {
+                return -1;
+            }
+            process(Math.min(len, in.length));
+        }
+        int n = Math.min(len, outLimit - outPos);
+        System.arraycopy(out, outPos, buf, off, n);
+        outPos += n;
+        return n;
+    }
+
+    // Run the next input block through the cipher into the reused output buffer
+    private void process(int want) throws IOException {
+        int n = super.read(in, 0, want);
+        try {
+            outPos = 0;
+            if (n == -1) {
+                finished = true;
+                ensureCapacity(cipher.getOutputSize(0));
+                outLimit = cipher.doFinal(out, 0);
+            } else {
+                ensureCapacity(cipher.getOutputSize(n));
+                outLimit = cipher.update(in, 0, n, out, 0);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cipher failed: " + cipher.getAlgorithm(), e);
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (out.length < size) {
+            out = new byte[size];
+        }
+    }
+}
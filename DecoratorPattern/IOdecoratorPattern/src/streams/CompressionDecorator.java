@@ -2,19 +2,37 @@ package streams;
 
 import java.io.IOException;
 
-public class CompressionDecorator extends DataStreamDecorator {
+public class CompressionDecorator extends DataStreamDecorator implements ByteTransform {
+    private static final int SHRINK = 1;
+
+    private final ByteKernel kernel;
+
     public CompressionDecorator(InputStreamComponent stream) {
+        this(stream, ByteKernels.get());
+    }
+
+    public CompressionDecorator(InputStreamComponent stream, ByteKernel kernel) {
         super(stream);
+        this.kernel = kernel;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        if (n > 0) {
+            kernel.subtract(buf, off, n, SHRINK);
+        }
+        return n;
     }
 
     @Override
-    public int read() throws IOException {
-        int data = super.read();
-        return (data != -1) ? compress(data) : data;
+    public int transform(int data) {
+        return compress(data);
     }
 
-    private int compress(int data) {
+    // Also what Pipeline fuses, without building a decorator
+    static int compress(int data) {
         // Simulated compression logic (shrinking character ASCII by 1)
-        return data - 1;
+        return data - SHRINK;
     }
 }
@@ -1,35 +1,69 @@
 package streams;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 
+// Streams every byte of stdin in order, through one reusable buffer; ends at end of input (Ctrl+D / Ctrl+Z)
 public class ConsoleInputStream extends InputStreamComponent {
-    private BufferedReader consoleReader;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
 
     public ConsoleInputStream() {
-        consoleReader = new BufferedReader(new InputStreamReader(System.in));
+        this(System.in);
+    }
+
+    // Reads from another stream in the console's place, e.g. a pipe
+    public ConsoleInputStream(InputStream in) {
+        this.in = in;
     }
 
     @Override
     public int read() throws IOException {
-        String input = consoleReader.readLine(); // Read full line
-        
-        // Handle empty or null input safely
-        if (input == null || input.isEmpty()) {
-            return -1; // Return -1 to signal end of stream
+        if (pos == limit && fill() == -1) {
+            return -1;
         }
+        return buffer[pos++] & 0xFF;
+    }
 
-        // Convert input string to bytes for processing
-        byte[] inputBytes = input.getBytes();
-        ByteArrayInputStream byteStream = new ByteArrayInputStream(inputBytes);
-        
-        return byteStream.read(); // Return first character or -1 if empty
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos == limit) {
+            // Large reads go straight into the caller's array
+            if (len >= buffer.length) {
+                return in.read(buf, off, len);
+            }
+            if (fill() == -1) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buffer, pos, buf, off, n);
+        pos += n;
+        return n;
     }
 
     @Override
     public void close() throws IOException {
-        consoleReader.close();
+        in.close();
+    }
+
+    private int fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int n;
+        do {
+            n = in.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n > 0) {
+            limit = n;
+        }
+        return n;
     }
 }
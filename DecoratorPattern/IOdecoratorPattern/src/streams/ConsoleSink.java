@@ -0,0 +1,68 @@
+package streams;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+// Buffered channel over System.out; closing it flushes but leaves stdout open
+public class ConsoleSink extends OutputSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PrintStream out;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    public ConsoleSink() {
+        this(System.out);
+    }
+
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+        this.channel = Channels.newChannel(out);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        if (len > buffer.remaining()) {
+            flushBuffer();
+            if (len >= buffer.capacity()) {
+                write(ByteBuffer.wrap(buf, off, len));
+                return;
+            }
+        }
+        buffer.put(buf, off, len);
+    }
+
+    @Override
+    public void write(ByteBuffer src) throws IOException {
+        if (src.remaining() <= buffer.remaining()) {
+            buffer.put(src);
+            return;
+        }
+        flushBuffer();
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -2,14 +2,21 @@ package streams;
 
 import java.io.IOException;
 
-public class DataStreamDecorator extends BufferedStreamDecorator {
+public class DataStreamDecorator extends InputStreamComponent {
+    protected InputStreamComponent component;
+
     public DataStreamDecorator(InputStreamComponent component) {
-        super(component);
+        this.component = component;
     }
 
     @Override
-    public int read() throws IOException {
+    public int read(byte[] buf, int off, int len) throws IOException {
         // Just pass through without printing
-        return super.read();
+        return component.read(buf, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        component.close();
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package streams;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+// Compresses the stream into independent blocks, each framed as
+// [int rawLength][int compressedLength][compressed bytes], so blocks can be inflated separately
+public class DeflateDecorator extends DataStreamDecorator {
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int MAX_BLOCK_SIZE = 64 * 1024 * 1024; // also the largest block InflateDecorator accepts
+    static final int HEADER_SIZE = 8;
+
+    private final Deflater deflater;
+    private final byte[] raw;
+    private byte[] frame;
+    private int framePos;
+    private int frameLimit;
+    private boolean eof;
+
+    public DeflateDecorator(InputStreamComponent stream) {
+        this(stream, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE);
+    }
+
+    public DeflateDecorator(InputStreamComponent stream, int level, int blockSize) {
+        super(stream);
+        if (blockSize <= 0 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ": "
+                    + blockSize);
+        }
+        this.deflater = new Deflater(level, true);
+        this.raw = new byte[blockSize];
+        this.frame = new byte[HEADER_SIZE + maxCompressedLength(blockSize)];
+    }
+
+    // Deflate never expands data by more than this, even when it falls back to stored blocks
+    static int maxCompressedLength(int rawLength) {
+        return rawLength + rawLength / 64 + 64;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (framePos == frameLimit && !nextFrame()) {
+            return -1;
+        }
+        int n = Math.min(len, frameLimit - framePos);
+        System.arraycopy(frame, framePos, buf, off, n);
+        framePos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        super.close();
+    }
+
+    private boolean nextFrame() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int rawLength = 0;
+        while (rawLength < raw.length) {
+            int n = super.read(raw, rawLength, raw.length - rawLength);
+            if (n == -1) {
+                eof = true;
+                break;
+            }
+            rawLength += n;
+        }
+        if (rawLength == 0) {
+            return false;
+        }
+
+        deflater.reset();
+        deflater.setInput(raw, 0, rawLength);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (HEADER_SIZE + compressedLength == frame.length) {
+                frame = Arrays.copyOf(frame, frame.length * 2);
+            }
+            compressedLength += deflater.deflate(frame, HEADER_SIZE + compressedLength,
+                    frame.length - HEADER_SIZE - compressedLength);
+        }
+
+        writeInt(frame, 0, rawLength);
+        writeInt(frame, 4, compressedLength);
+        framePos = 0;
+        frameLimit = HEADER_SIZE + compressedLength;
+        return true;
+    }
+
+    static void writeInt(byte[] buf, int off, int value) {
+        buf[off] = (byte) (value >>> 24);
+        buf[off + 1] = (byte) (value >>> 16);
+        buf[off + 2] = (byte) (value >>> 8);
+        buf[off + 3] = (byte) value;
+    }
+
+    static int readInt(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+    }
+}
@@ -2,26 +2,38 @@ package streams;
 
 import java.io.IOException;
 
-public class EncryptionDecorator extends DataStreamDecorator {
+public class EncryptionDecorator extends DataStreamDecorator implements ByteTransform {
+    private static final int KEY = 5;
+
+    private final ByteKernel kernel;
+
     public EncryptionDecorator(InputStreamComponent stream) {
+        this(stream, ByteKernels.get());
+    }
+
+    public EncryptionDecorator(InputStreamComponent stream, ByteKernel kernel) {
         super(stream);
+        this.kernel = kernel;
     }
 
     @Override
-    public int read() {
-        int data;
-        try {
-            data = super.read();
-        } catch (IOException e) {
-            e.printStackTrace();
-            return -1; // or handle the error as needed
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        if (n > 0) {
+            kernel.xor(buf, off, n, KEY);
         }
-        return (data != -1) ? encrypt(data) : data;
+        return n;
+    }
+
+    @Override
+    public int transform(int data) {
+        return encrypt(data);
     }
 
-    private int encrypt(int data) {
+    // Also what Pipeline fuses, without building a decorator
+    static int encrypt(int data) {
         // Simple XOR encryption (for demonstration)
-        return data ^ 5;
+        return data ^ KEY;
     }
 }
 
@@ -0,0 +1,151 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class FileChannelInputStreamComponent extends InputStreamComponent {
+    public enum Mode { MAPPED, POSITIONAL }
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final Mode mode;
+    private final long size;
+    private final int windowSize;
+    private long position;       // file offset of the next byte not yet loaded into the window/buffer
+    private ByteBuffer window;   // mapped window or reusable read buffer, kept in read (flipped) state
+
+    public FileChannelInputStreamComponent(String fileName, Mode mode) throws IOException {
+        this(fileName, mode, (mode == Mode.MAPPED) ? DEFAULT_WINDOW_SIZE : DEFAULT_BUFFER_SIZE);
+    }
+
+    // windowSize is the mapped window in MAPPED mode and the read buffer in POSITIONAL mode
+    public FileChannelInputStreamComponent(String fileName, Mode mode, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        this.mode = mode;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        if (mode == Mode.POSITIONAL) {
+            window = ByteBuffer.allocateDirect(windowSize);
+            window.flip();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(buf, off, n);
+        return n;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        // Positional reads can go straight into the caller's buffer once ours is drained
+        if (mode == Mode.POSITIONAL && (window == null || !window.hasRemaining())) {
+            int n = channel.read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int n = Math.min(dst.remaining(), window.remaining());
+        ByteBuffer slice = window.slice();
+        slice.limit(n);
+        dst.put(slice);
+        window.position(window.position() + n);
+        return n;
+    }
+
+    @Override
+    public long transferTo(OutputSink sink) throws IOException {
+        if (!(sink instanceof FileChannelSink)) {
+            return super.transferTo(sink);
+        }
+        // Hand over what is already in the window, then let the kernel copy the rest file to file
+        FileChannel target = ((FileChannelSink) sink).channel();
+        long total = 0;
+        if (window != null && window.hasRemaining()) {
+            total += window.remaining();
+            sink.write(window);
+        }
+        while (position < size) {
+            long n = channel.transferTo(position, size - position, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null; // a mapping is released once the buffer is collected
+        channel.close();
+    }
+
+    // Make sure the current window has bytes left, sliding or refilling it when drained
+    private boolean ensureAvailable() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= size) {
+            return false;
+        }
+        if (mode == Mode.MAPPED) {
+            long length = Math.min(windowSize, size - position);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            window = mapped;
+            return true;
+        }
+        window.clear();
+        int n;
+        do {
+            n = channel.read(window, position);
+        } while (n == 0);
+        window.flip();
+        if (n < 0) {
+            return false;
+        }
+        position += n;
+        return true;
+    }
+}
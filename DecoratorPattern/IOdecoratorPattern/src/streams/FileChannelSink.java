@@ -0,0 +1,43 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// Writes to a file through a FileChannel; file sources transfer into it without copying through the heap
+public class FileChannelSink extends OutputSink {
+    private final FileChannel channel;
+
+    public FileChannelSink(String fileName) throws IOException {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) throws IOException {
+        write(ByteBuffer.wrap(buf, off, len));
+    }
+
+    @Override
+    public void write(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Channel writes go straight to the file
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
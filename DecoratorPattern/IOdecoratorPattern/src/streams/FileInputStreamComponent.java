@@ -2,6 +2,8 @@ package streams;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class FileInputStreamComponent extends InputStreamComponent {
     private FileInputStream fileInputStream;
@@ -15,6 +17,40 @@ public class FileInputStreamComponent extends InputStreamComponent {
         return fileInputStream.read();
     }
 
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        return fileInputStream.read(buf, off, len);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        // The channel reads straight into a direct buffer without a temporary copy
+        return fileInputStream.getChannel().read(dst);
+    }
+
+    @Override
+    public long transferTo(OutputSink sink) throws IOException {
+        if (!(sink instanceof FileChannelSink)) {
+            return super.transferTo(sink);
+        }
+        // Zero-copy file to file from the current position
+        FileChannel source = fileInputStream.getChannel();
+        FileChannel target = ((FileChannelSink) sink).channel();
+        long total = 0;
+        long position = source.position();
+        long size = source.size();
+        while (position < size) {
+            long n = source.transferTo(position, size - position, target);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            total += n;
+        }
+        source.position(position);
+        return total;
+    }
+
     @Override
     public void close() throws IOException {
         fileInputStream.close();
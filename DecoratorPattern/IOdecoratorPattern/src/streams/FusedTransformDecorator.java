@@ -0,0 +1,67 @@
+package streams;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FusedTransformDecorator extends DataStreamDecorator implements ByteTransform {
+    private final byte[] table;
+
+    public FusedTransformDecorator(InputStreamComponent stream, byte[] table) {
+        super(stream);
+        if (table.length != 256) {
+            throw new IllegalArgumentException("Lookup table must have 256 entries: " + table.length);
+        }
+        this.table = table;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        for (int i = off; i < off + n; i++) {
+            buf[i] = table[buf[i] & 0xFF];
+        }
+        return n;
+    }
+
+    @Override
+    public int transform(int data) {
+        return table[data & 0xFF] & 0xFF;
+    }
+
+    // Precompute the result of applying the transforms in order (innermost first) to every byte value
+    public static byte[] table(List<ByteTransform> transforms) {
+        byte[] table = new byte[256];
+        for (int b = 0; b < 256; b++) {
+            int data = b;
+            for (ByteTransform transform : transforms) {
+                data = transform.transform(data) & 0xFF;
+            }
+            table[b] = (byte) data;
+        }
+        return table;
+    }
+
+    // Collapse every run of two or more stateless transforms in the chain into a single table lookup.
+    // Other decorators stay in place as barriers and the chain below them is fused on its own.
+    // Consumes stream: the barriers are relinked to the fused stages below them, so only the returned
+    // chain may be read afterwards. Pipeline fuses before building any decorator and has no such catch.
+    public static InputStreamComponent fuse(InputStreamComponent stream) {
+        List<ByteTransform> run = new ArrayList<>();
+        InputStreamComponent current = stream;
+        while (current instanceof ByteTransform && current instanceof DataStreamDecorator) {
+            run.add(0, (ByteTransform) current);
+            current = ((DataStreamDecorator) current).component;
+        }
+
+        if (run.size() < 2) {
+            // Nothing to fuse at this level, keep the decorator and fuse what is below it
+            if (stream instanceof DataStreamDecorator) {
+                DataStreamDecorator decorator = (DataStreamDecorator) stream;
+                decorator.component = fuse(decorator.component);
+            }
+            return stream;
+        }
+        return new FusedTransformDecorator(fuse(current), table(run));
+    }
+}
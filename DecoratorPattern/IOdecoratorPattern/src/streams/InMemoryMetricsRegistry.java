@@ -0,0 +1,26 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    @Override
+    public synchronized void register(StageMetrics metrics) {
+        stages.add(metrics);
+    }
+
+    public synchronized List<StageMetrics> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    // One line per stage, source first
+    public synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        for (StageMetrics stage : stages) {
+            sb.append(stage).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package streams;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Reads the block-framed output of DeflateDecorator back into the original bytes
+public class InflateDecorator extends DataStreamDecorator {
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] header = new byte[DeflateDecorator.HEADER_SIZE];
+    private byte[] compressed = new byte[0];
+    private byte[] raw = new byte[0];
+    private int rawPos;
+    private int rawLimit;
+
+    public InflateDecorator(InputStreamComponent stream) {
+        super(stream);
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (rawPos == rawLimit && !nextBlock()) {
+            return -1;
+        }
+        int n = Math.min(len, rawLimit - rawPos);
+        System.arraycopy(raw, rawPos, buf, off, n);
+        rawPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        super.close();
+    }
+
+    private boolean nextBlock() throws IOException {
+        int headerLength = readFully(header, header.length);
+        if (headerLength == 0) {
+            return false;
+        }
+        if (headerLength < header.length) {
+            throw new IOException("Truncated block header");
+        }
+        int rawLength = DeflateDecorator.readInt(header, 0);
+        int compressedLength = DeflateDecorator.readInt(header, 4);
+        // Checked before anything is allocated, so a corrupt or hostile header cannot ask for gigabytes
+        if (rawLength <= 0 || compressedLength <= 0 || rawLength > DeflateDecorator.MAX_BLOCK_SIZE
+                || compressedLength > DeflateDecorator.maxCompressedLength(rawLength)) {
+            throw new IOException("Corrupt block header: " + rawLength + "/" + compressedLength);
+        }
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+        if (readFully(compressed, compressedLength) < compressedLength) {
+            throw new IOException("Truncated block, expected " + compressedLength + " bytes");
+        }
+
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int n = 0;
+            while (n < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, n, rawLength - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != rawLength) {
+                throw new IOException("Block inflated to " + n + " bytes, expected " + rawLength);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed block", e);
+        }
+        rawPos = 0;
+        rawLimit = rawLength;
+        return true;
+    }
+
+    private int readFully(byte[] buf, int len) throws IOException {
+        int total = 0;
+        while (total < len) {
+            int n = super.read(buf, total, len - total);
+            if (n == -1) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
@@ -2,8 +2,58 @@ package streams;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public abstract class InputStreamComponent {
-    public abstract int read() throws IOException;
+    static final int TRANSFER_BLOCK_SIZE = 64 * 1024;
+
+    private final byte[] single = new byte[1];
+    private byte[] scratch; // staging array for read(ByteBuffer) into a direct buffer, allocated on first use
+
+    // Reads up to len bytes into buf, returns the count or -1 at end of stream
+    public abstract int read(byte[] buf, int off, int len) throws IOException;
     public abstract void close() throws IOException;
+
+    // Single-byte read built on top of the block read
+    public int read() throws IOException {
+        int n;
+        do {
+            n = read(single, 0, 1);
+        } while (n == 0);
+        return (n == -1) ? -1 : single[0] & 0xFF;
+    }
+
+    // Moves everything left in this stream to sink a block at a time and returns the byte count.
+    // Undecorated file sources override this with a zero-copy FileChannel.transferTo.
+    public long transferTo(OutputSink sink) throws IOException {
+        byte[] buf = new byte[TRANSFER_BLOCK_SIZE];
+        long total = 0;
+        int n;
+        while ((n = read(buf, 0, buf.length)) != -1) {
+            sink.write(buf, 0, n);
+            total += n;
+        }
+        sink.flush();
+        return total;
+    }
+
+    // Fills the remaining space of dst; sources that can write straight into a direct buffer override this.
+    // Other sources stage direct reads through one reused array.
+    public int read(ByteBuffer dst) throws IOException {
+        if (dst.hasArray()) {
+            int n = read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            if (n > 0) {
+                dst.position(dst.position() + n);
+            }
+            return n;
+        }
+        if (scratch == null) {
+            scratch = new byte[8192];
+        }
+        int n = read(scratch, 0, Math.min(dst.remaining(), scratch.length));
+        if (n > 0) {
+            dst.put(scratch, 0, n);
+        }
+        return n;
+    }
 }
@@ -0,0 +1,25 @@
+package streams;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Publishes every stage as streams:type=Stage,chain=...,stage=... on the platform MBean server
+public class JmxMetricsRegistry implements MetricsRegistry {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Override
+    public void register(StageMetrics metrics) {
+        try {
+            ObjectName name = new ObjectName("streams:type=Stage,chain=" + ObjectName.quote(metrics.getChain())
+                    + ",stage=" + ObjectName.quote(metrics.getStage()));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name); // A new run of the same chain replaces the old counters
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics for " + metrics.getStage(), e);
+        }
+    }
+}
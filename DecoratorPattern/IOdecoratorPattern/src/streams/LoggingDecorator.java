@@ -3,20 +3,67 @@ package streams;
 import java.io.IOException;
 
 public class LoggingDecorator extends DataStreamDecorator {
+    public static final int DEFAULT_BATCH_BYTES = 64 * 1024;
+
+    private final AsyncLogWriter writer;
+    private final boolean ownsWriter;
+    private final int batchBytes;
+    private long position;     // bytes read so far
+    private long batchStart;   // offset of the first byte not yet handed to the writer
+
+    // The writer is created for this decorator and closed together with it
     public LoggingDecorator(InputStreamComponent stream) {
+        this(stream, new AsyncLogWriter(), DEFAULT_BATCH_BYTES, true);
+    }
+
+    // The writer stays the caller's, so decorators read one after another on the same thread can share it;
+    // close() waits for this decorator's records to be printed but leaves the writer running
+    public LoggingDecorator(InputStreamComponent stream, AsyncLogWriter writer, int batchBytes) {
+        this(stream, writer, batchBytes, false);
+    }
+
+    private LoggingDecorator(InputStreamComponent stream, AsyncLogWriter writer, int batchBytes,
+                             boolean ownsWriter) {
         super(stream);
+        if (batchBytes <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchBytes);
+        }
+        this.writer = writer;
+        this.ownsWriter = ownsWriter;
+        this.batchBytes = batchBytes;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        if (n > 0) {
+            position += n;
+            if (position - batchStart >= batchBytes) {
+                log();
+            }
+        }
+        return n;
     }
 
     @Override
-    public int read() throws IOException {
-        int data = super.read();
-        if (data != -1) {
-            log(data);
+    public void close() throws IOException {
+        try {
+            if (position > batchStart) {
+                log();
+            }
+            if (ownsWriter) {
+                writer.close(position);
+            } else {
+                writer.finish(position);
+            }
+        } finally {
+            super.close();
         }
-        return data;
     }
 
-    private void log(int data) {
-        System.out.println("[LOG]: Read character - " + (char) data);
+    // Hand the range read since the last record to the background writer
+    private void log() {
+        writer.log(batchStart, position - batchStart);
+        batchStart = position;
     }
 }
@@ -0,0 +1,6 @@
+package streams;
+
+// Receives the metrics of every instrumented stage, e.g. to publish them
+public interface MetricsRegistry {
+    void register(StageMetrics metrics);
+}
@@ -0,0 +1,26 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Output side of the pipeline: where the bytes of a decorated stream end up
+public abstract class OutputSink {
+    public abstract void write(byte[] buf, int off, int len) throws IOException;
+    public abstract void flush() throws IOException;
+    public abstract void close() throws IOException;
+
+    // Writes the remaining bytes of src; sinks backed by a channel override this to skip the copy
+    public void write(ByteBuffer src) throws IOException {
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+            return;
+        }
+        byte[] tmp = new byte[Math.min(src.remaining(), 8192)];
+        while (src.hasRemaining()) {
+            int n = Math.min(tmp.length, src.remaining());
+            src.get(tmp, 0, n);
+            write(tmp, 0, n);
+        }
+    }
+}
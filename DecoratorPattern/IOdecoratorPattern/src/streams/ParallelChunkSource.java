@@ -0,0 +1,115 @@
+package streams;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Reads a file in fixed-size chunks on a pool, transforms every chunk independently and hands them out in order
+public class ParallelChunkSource extends InputStreamComponent {
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final byte[] table; // fused lookup table of the stateless chain, null for no transform
+    private final int chunkSize;
+    private final int maxInFlight;
+    private final ForkJoinPool pool;
+    private final long size;
+    private final ArrayDeque<ForkJoinTask<byte[]>> inFlight = new ArrayDeque<>();
+    private long nextChunkPosition;
+    private byte[] current;
+    private int currentPos;
+
+    public ParallelChunkSource(String fileName, byte[] table, int chunkSize, ForkJoinPool pool) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        this.table = table;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.maxInFlight = pool.getParallelism() * 2; // bounds memory to a few chunks per worker
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (current == null || currentPos == current.length) {
+            if (!nextChunk()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, buf, off, n);
+        currentPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ForkJoinTask<byte[]> task : inFlight) {
+            task.cancel(false);
+        }
+        inFlight.clear();
+        channel.close();
+    }
+
+    private boolean nextChunk() throws IOException {
+        while (inFlight.size() < maxInFlight && nextChunkPosition < size) {
+            long position = nextChunkPosition;
+            int length = (int) Math.min(chunkSize, size - position);
+            nextChunkPosition += length;
+            inFlight.add(pool.submit(() -> processChunk(position, length)));
+        }
+        ForkJoinTask<byte[]> head = inFlight.poll();
+        if (head == null) {
+            return false;
+        }
+        try {
+            current = head.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        currentPos = 0;
+        return true;
+    }
+
+    private byte[] processChunk(long position, int length) {
+        byte[] chunk = new byte[length];
+        ByteBuffer dst = ByteBuffer.wrap(chunk);
+        try {
+            while (dst.hasRemaining()) {
+                int n = channel.read(dst, position + dst.position());
+                if (n < 0) {
+                    throw new IOException("File shrank while reading chunk at " + position);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (table != null) {
+            for (int i = 0; i < length; i++) {
+                chunk[i] = table[chunk[i] & 0xFF];
+            }
+        }
+        return chunk;
+    }
+
+    // Runs pipeline over file. Only the stateless stages at the bottom of the pipeline (encrypt|upper in
+    // "encrypt|upper|log|compress") are done per chunk on pool; every stage from the first stateful one up,
+    // stateless or not, reads the reassembled output in order on the caller's thread.
+    public static InputStreamComponent open(Path file, Pipeline pipeline, int chunkSize, ForkJoinPool pool)
+            throws IOException {
+        return pipeline.applyAboveHead(new ParallelChunkSource(file.toString(), pipeline.headTable(), chunkSize,
+                pool));
+    }
+}
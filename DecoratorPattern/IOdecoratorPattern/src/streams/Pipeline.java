@@ -0,0 +1,212 @@
+package streams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+
+// Immutable, reusable decorator chain template, built once from a spec like "encrypt|upper|compress"
+// or the builder, then applied to any number of sources
+public final class Pipeline {
+    // Wraps a stream in one decorator
+    public interface Stage {
+        InputStreamComponent wrap(InputStreamComponent stream);
+    }
+
+    private final List<Stage> stages;
+    private final String spec;
+    private final byte[] headTable; // the stateless stages at the bottom of the chain as one table, or null
+    private final int headStages;   // how many of stages those are
+
+    private Pipeline(List<Stage> stages, String spec, List<ByteTransform> head, int headStages) {
+        this.stages = Collections.unmodifiableList(stages);
+        this.spec = spec;
+        this.headTable = head.isEmpty() ? null : FusedTransformDecorator.table(head);
+        this.headStages = headStages;
+    }
+
+    // Stage names: encrypt, upper, upper-utf8, compress, log, deflate[:level], inflate, buffer[:size]
+    public static Pipeline parse(String spec) {
+        Builder builder = builder();
+        for (String token : spec.split("\\|")) {
+            String name = token.trim();
+            if (name.isEmpty() || name.equals("none")) {
+                continue;
+            }
+            String arg = null;
+            int colon = name.indexOf(':');
+            if (colon >= 0) {
+                arg = name.substring(colon + 1).trim();
+                name = name.substring(0, colon).trim();
+            }
+            if (arg != null && !name.equals("deflate") && !name.equals("buffer")) {
+                throw new IllegalArgumentException("Stage takes no argument: " + token.trim());
+            }
+            switch (name) {
+                case "encrypt":
+                    builder.encrypt();
+                    break;
+                case "upper":
+                    builder.uppercase();
+                    break;
+                case "upper-utf8":
+                    builder.uppercaseUtf8();
+                    break;
+                case "compress":
+                    builder.compress();
+                    break;
+                case "log":
+                    builder.log();
+                    break;
+                case "deflate":
+                    builder.deflate((arg != null) ? parseInt(arg, token) : Deflater.DEFAULT_COMPRESSION);
+                    break;
+                case "inflate":
+                    builder.inflate();
+                    break;
+                case "buffer":
+                    builder.buffer((arg != null) ? parseInt(arg, token) : BufferedStreamDecorator.DEFAULT_BUFFER_SIZE);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown pipeline stage: " + token.trim());
+            }
+        }
+        return builder.build();
+    }
+
+    private static int parseInt(String value, String token) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid argument in pipeline stage: " + token.trim(), e);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Builds a fresh decorator chain over source, innermost stage first
+    public InputStreamComponent apply(InputStreamComponent source) {
+        InputStreamComponent stream = source;
+        for (Stage stage : stages) {
+            stream = stage.wrap(stream);
+        }
+        return stream;
+    }
+
+    // The stateless stages at the bottom of the chain (encrypt|upper in "encrypt|upper|log|compress") fused into
+    // one lookup table, so a source can apply them itself; null when the chain does not start with one
+    public byte[] headTable() {
+        return (headTable != null) ? headTable.clone() : null;
+    }
+
+    // Builds the chain over a source that already applied headTable(), i.e. only the stages above it
+    public InputStreamComponent applyAboveHead(InputStreamComponent source) {
+        InputStreamComponent stream = source;
+        for (Stage stage : stages.subList(headStages, stages.size())) {
+            stream = stage.wrap(stream);
+        }
+        return stream;
+    }
+
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return spec.isEmpty() ? "none" : spec;
+    }
+
+    public static final class Builder {
+        private final List<Stage> stages = new ArrayList<>();
+        private final List<Stage> statelessRun = new ArrayList<>();
+        private final List<ByteTransform> runTransforms = new ArrayList<>(); // the mappings of statelessRun
+        private final List<ByteTransform> head = new ArrayList<>(); // the mappings of the bottom run
+        private int headStages;
+        private final StringBuilder spec = new StringBuilder();
+
+        private Builder() {
+        }
+
+        public Builder encrypt() {
+            return stateless("encrypt", EncryptionDecorator::new, EncryptionDecorator::encrypt);
+        }
+
+        public Builder uppercase() {
+            return stateless("upper", UppercaseDecorator::new, UppercaseDecorator::toUpperCase);
+        }
+
+        // Multi-byte aware, so it carries state across reads and is never fused
+        public Builder uppercaseUtf8() {
+            return stage("upper-utf8", Utf8UppercaseDecorator::new);
+        }
+
+        public Builder compress() {
+            return stateless("compress", CompressionDecorator::new, CompressionDecorator::compress);
+        }
+
+        public Builder log() {
+            return stage("log", LoggingDecorator::new);
+        }
+
+        public Builder deflate(int level) {
+            return stage("deflate:" + level,
+                    stream -> new DeflateDecorator(stream, level, DeflateDecorator.DEFAULT_BLOCK_SIZE));
+        }
+
+        public Builder inflate() {
+            return stage("inflate", InflateDecorator::new);
+        }
+
+        public Builder buffer(int size) {
+            return stage("buffer:" + size, stream -> new BufferedStreamDecorator(stream, size));
+        }
+
+        // Any other decorator, e.g. a CipherDecorator with its key
+        public Builder stage(String name, Stage stage) {
+            flushStatelessRun();
+            stages.add(stage);
+            appendSpec(name);
+            return this;
+        }
+
+        public Pipeline build() {
+            flushStatelessRun();
+            return new Pipeline(new ArrayList<>(stages), spec.toString(), head, headStages);
+        }
+
+        // transform is the mapping the stage's decorator applies, so a run can be fused without building one
+        private Builder stateless(String name, Stage stage, ByteTransform transform) {
+            statelessRun.add(stage);
+            runTransforms.add(transform);
+            appendSpec(name);
+            return this;
+        }
+
+        private void appendSpec(String name) {
+            if (spec.length() > 0) {
+                spec.append('|');
+            }
+            spec.append(name);
+        }
+
+        // Runs of stateless transforms are fused into a table computed once here (vector kernels stay unfused)
+        private void flushStatelessRun() {
+            boolean bottom = stages.isEmpty();
+            if (statelessRun.size() >= 2 && ByteKernels.get() == ByteKernels.scalar()) {
+                byte[] table = FusedTransformDecorator.table(runTransforms);
+                stages.add(stream -> new FusedTransformDecorator(stream, table));
+            } else {
+                stages.addAll(statelessRun);
+            }
+            if (bottom && !statelessRun.isEmpty()) {
+                head.addAll(runTransforms);
+                headStages = stages.size();
+            }
+            statelessRun.clear();
+            runTransforms.clear();
+        }
+    }
+}
@@ -2,17 +2,17 @@ package streams;
 
 import java.io.IOException;
 
-public class PrintingDecorator extends BufferedStreamDecorator {
+public class PrintingDecorator extends DataStreamDecorator {
     public PrintingDecorator(InputStreamComponent component) {
         super(component);
     }
 
     @Override
-    public int read() throws IOException {
-        int data = super.read();
-        if (data != -1) {
-            System.out.print((char) data);
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        for (int i = off; i < off + n; i++) {
+            System.out.print((char) (buf[i] & 0xFF));
         }
-        return data;
+        return n;
     }
 }
\ No newline at end of file
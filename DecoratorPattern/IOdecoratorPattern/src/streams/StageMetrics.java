@@ -0,0 +1,62 @@
+package streams;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters for one stage; bytes in and self time are derived from the stage below it
+public class StageMetrics implements StageMetricsMBean {
+    private final String chain;
+    private final String stage;
+    private final StageMetrics below;
+    final LongAdder calls = new LongAdder();
+    final LongAdder bytesOut = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+
+    public StageMetrics(String chain, String stage, StageMetrics below) {
+        this.chain = chain;
+        this.stage = stage;
+        this.below = below;
+    }
+
+    @Override
+    public String getChain() {
+        return chain;
+    }
+
+    @Override
+    public String getStage() {
+        return stage;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    // What this stage read from the stage below it, 0 for a source
+    @Override
+    public long getBytesIn() {
+        return (below != null) ? below.getBytesOut() : 0;
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    // Time spent in this stage including the stages below it
+    @Override
+    public long getTotalNanos() {
+        return nanos.sum();
+    }
+
+    @Override
+    public long getSelfNanos() {
+        return getTotalNanos() - ((below != null) ? below.getTotalNanos() : 0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %-28s calls=%d in=%d out=%d self=%.3f ms",
+                chain, stage, getCalls(), getBytesIn(), getBytesOut(), getSelfNanos() / 1e6);
+    }
+}
@@ -0,0 +1,12 @@
+package streams;
+
+// JMX view of one stage of a decorator chain
+public interface StageMetricsMBean {
+    String getChain();
+    String getStage();
+    long getCalls();
+    long getBytesIn();
+    long getBytesOut();
+    long getTotalNanos();
+    long getSelfNanos();
+}
@@ -1,30 +1,108 @@
 package streams;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
 
 public class StreamController {
+    private static final long MAPPED_THRESHOLD = 16L * 1024 * 1024;
+
+    private final Pipeline pipeline;
+    private MetricsRegistry metricsRegistry; // null keeps chains free of any metering
+
+    // Asks for the decorators interactively for every input
+    public StreamController() {
+        this(null);
+    }
+
+    // Applies the same pipeline to every input without prompting, for batch jobs
+    public StreamController(Pipeline pipeline) {
+        this.pipeline = pipeline;
+    }
 
     // Process file input
     public void processFile(String fileName) {
         try {
-            InputStreamComponent fileStream = new FileInputStreamComponent(fileName);
+            InputStreamComponent fileStream = openFile(fileName);
             InputStreamComponent decoratedStream = applyDecorators(fileStream);
 
             System.out.println("\nProcessing file: " + fileName);
-            readStream(decoratedStream);
+            readStream(instrument(decoratedStream, "file:" + fileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Process file input with the stateless stages at the bottom of the pipeline running on all cores. Needs
+    // the pipeline given to the constructor; without one the decorators are asked for and the file is
+    // processed sequentially.
+    public void processFileParallel(String fileName) {
+        if (pipeline == null) {
+            System.out.println("\nParallel processing needs a pipeline spec, processing sequentially.");
+            processFile(fileName);
+            return;
+        }
+        try {
+            InputStreamComponent decoratedStream = ParallelChunkSource.open(Paths.get(fileName), pipeline,
+                    ParallelChunkSource.DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+
+            System.out.println("\nProcessing file in parallel: " + fileName);
+            readStream(instrument(decoratedStream, "parallel-file:" + fileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Process file input into another file; without decorators the copy is zero-copy
+    public void processFileToFile(String fileName, String outputFileName) {
+        try {
+            InputStreamComponent fileStream = openFile(fileName);
+            InputStreamComponent decoratedStream = instrument(applyDecorators(fileStream), "file:" + fileName);
+            OutputSink sink = new FileChannelSink(outputFileName);
+
+            System.out.println("\nProcessing file: " + fileName + " -> " + outputFileName);
+            try {
+                long bytes = decoratedStream.transferTo(sink);
+                System.out.println(bytes + " bytes written.");
+            } finally {
+                sink.close();
+                decoratedStream.close();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    // Enables per-stage metrics for every chain processed from now on, or disables them with null
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    private InputStreamComponent instrument(InputStreamComponent stream, String chainName) {
+        if (metricsRegistry == null) {
+            return stream;
+        }
+        return MeteredDecorator.instrument(stream, chainName, metricsRegistry);
+    }
+
+    // Large files are read through sliding mapped windows, small ones with positional channel reads
+    private InputStreamComponent openFile(String fileName) throws IOException {
+        long size = Files.size(Paths.get(fileName));
+        FileChannelInputStreamComponent.Mode mode = (size >= MAPPED_THRESHOLD)
+                ? FileChannelInputStreamComponent.Mode.MAPPED
+                : FileChannelInputStreamComponent.Mode.POSITIONAL;
+        return new FileChannelInputStreamComponent(fileName, mode);
+    }
+
     // Process string input
     public void processString(String data) {
         InputStreamComponent stringStream = new StringInputStream(data);
         InputStreamComponent decoratedStream = applyDecorators(stringStream);
 
         System.out.println("\nProcessing string input...");
-        readStream(decoratedStream);
+        readStream(instrument(decoratedStream, "string"));
     }
 
     // Process console input
@@ -32,12 +110,18 @@ public class StreamController {
         InputStreamComponent consoleStream = new ConsoleInputStream();
         InputStreamComponent decoratedStream = applyDecorators(consoleStream);
 
-        System.out.println("\nProcessing console input. Type something and press Enter:");
-        readStream(decoratedStream);
+        System.out.println("\nProcessing console input. Type something and finish with Ctrl+D (Ctrl+Z then Enter on Windows):");
+        readStream(instrument(decoratedStream, "console"));
     }
-    private final Scanner scanner = new Scanner(System.in);
+    private Scanner scanner;
     // Apply decorators dynamically
     private InputStreamComponent applyDecorators(InputStreamComponent stream) {
+        if (pipeline != null) {
+            return pipeline.apply(stream); // Headless: reuse the configured chain
+        }
+        if (scanner == null) {
+            scanner = new Scanner(System.in);
+        }
         InputStreamComponent decoratedStream = stream;
     
         while (true) {
@@ -89,6 +173,10 @@ public class StreamController {
             }
         }
     
+        // Collapse runs of stateless byte transforms into one lookup pass; vector kernels are faster unfused
+        if (ByteKernels.get() == ByteKernels.scalar()) {
+            decoratedStream = FusedTransformDecorator.fuse(decoratedStream);
+        }
         return decoratedStream; // Return decorated stream
     }
     
@@ -96,10 +184,7 @@ public class StreamController {
     // Read and print data from any decorated stream
     private void readStream(InputStreamComponent stream) {
         try {
-            int data;
-            while ((data = stream.read()) != -1) {
-                System.out.print((char) data); // Keep printing here
-            }
+            stream.transferTo(new ConsoleSink()); // Keep printing here, a block at a time
             stream.close();
             System.out.println("\nStream closed successfully.");
         } catch (IOException e) {
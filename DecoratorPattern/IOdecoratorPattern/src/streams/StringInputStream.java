@@ -15,6 +15,11 @@ public class StringInputStream extends InputStreamComponent {
         return byteStream.read();
     }
 
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        return byteStream.read(buf, off, len);
+    }
+
     @Override
     public void close() throws IOException {
         byteStream.close();
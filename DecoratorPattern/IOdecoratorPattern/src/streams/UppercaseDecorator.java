@@ -2,19 +2,35 @@ package streams;
 
 import java.io.IOException;
 
-public class UppercaseDecorator extends DataStreamDecorator {
+public class UppercaseDecorator extends DataStreamDecorator implements ByteTransform {
+    private final ByteKernel kernel;
+
     public UppercaseDecorator(InputStreamComponent stream) {
+        this(stream, ByteKernels.get());
+    }
+
+    public UppercaseDecorator(InputStreamComponent stream, ByteKernel kernel) {
         super(stream);
+        this.kernel = kernel;
     }
 
     @Override
-    public int read() throws IOException {
-        int data = super.read(); // Read a single character
-        if (data == -1) {
-            return data; // End of stream
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len); // Read a whole block
+        if (n > 0) {
+            // Convert the whole block to uppercase in place
+            kernel.toUpperCase(buf, off, n);
         }
+        return n;
+    }
+
+    @Override
+    public int transform(int data) {
+        return toUpperCase(data);
+    }
 
-        // Convert to uppercase and return the int value
-        return (int) Character.toUpperCase((char) data);
+    // Same mapping as the kernel, so single-byte and block reads agree; also what Pipeline fuses
+    static int toUpperCase(int data) {
+        return (data >= 'a' && data <= 'z') ? data - ('a' - 'A') : data;
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package streams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Uppercases UTF-8 text. ASCII runs are converted as whole blocks without decoding; only non-ASCII runs go
+// through the charset coders, and a multibyte sequence split across two reads is carried over to the next one.
+public class Utf8UppercaseDecorator extends DataStreamDecorator {
+    private static final int BLOCK_SIZE = 8192;
+    private static final int MAX_CARRY = 3; // longest incomplete UTF-8 sequence
+
+    private final ByteKernel kernel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final byte[] in = new byte[MAX_CARRY + BLOCK_SIZE];
+    private final CharBuffer chars = CharBuffer.allocate(BLOCK_SIZE);
+    private final char[] upper = new char[BLOCK_SIZE * 2];
+    // Views over in, upper and out, kept so that a run allocates nothing
+    private final ByteBuffer inView = ByteBuffer.wrap(in);
+    private final CharBuffer upperView = CharBuffer.wrap(upper);
+    private int carry;        // bytes of an unfinished sequence kept at the start of in
+    private byte[] out = new byte[BLOCK_SIZE * 2];
+    private ByteBuffer outView = ByteBuffer.wrap(out);
+    private int outPos;
+    private int outLimit;
+    private boolean eof;
+
+    public Utf8UppercaseDecorator(InputStreamComponent stream) {
+        this(stream, ByteKernels.get());
+    }
+
+    public Utf8UppercaseDecorator(InputStreamComponent stream, ByteKernel kernel) {
+        super(stream);
+        this.kernel = kernel;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (outPos == outLimit) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, outLimit - outPos);
+        System.arraycopy(out, outPos, buf, off, n);
+        outPos += n;
+        return n;
+    }
+
+    private boolean nextBlock() throws IOException {
+        if (eof) {
+            return false;
+        }
+        int n = super.read(in, carry, BLOCK_SIZE);
+        int end;
+        if (n == -1) {
+            eof = true;
+            if (carry == 0) {
+                return false;
+            }
+            end = carry; // a dangling partial sequence becomes a replacement character
+        } else {
+            end = carry + n;
+        }
+        outPos = 0;
+        outLimit = 0;
+        carry = 0;
+
+        int i = 0;
+        while (i < end) {
+            // ASCII fast path: copy the run and uppercase it in one kernel call
+            int start = i;
+            while (i < end && in[i] >= 0) {
+                i++;
+            }
+            if (i > start) {
+                ensureOut(i - start);
+                System.arraycopy(in, start, out, outLimit, i - start);
+                kernel.toUpperCase(out, outLimit, i - start);
+                outLimit += i - start;
+            }
+            // Non-ASCII run: ends at the next ASCII byte, which is always a character boundary
+            start = i;
+            while (i < end && in[i] < 0) {
+                i++;
+            }
+            if (i > start) {
+                boolean complete = i < end || eof;
+                int consumed = uppercaseRun(start, i - start, complete);
+                if (consumed < i - start) {
+                    carry = i - start - consumed;
+                    System.arraycopy(in, start + consumed, in, 0, carry);
+                }
+            }
+        }
+        return true;
+    }
+
+    // Decode, uppercase and re-encode one non-ASCII run; returns the bytes consumed. A run at the end of the
+    // block that is not complete may leave an unfinished sequence behind for the next block.
+    private int uppercaseRun(int off, int len, boolean complete) {
+        ByteBuffer src = inView;
+        src.limit(off + len).position(off);
+        decoder.reset();
+        CoderResult result;
+        do {
+            chars.clear();
+            result = decoder.decode(src, chars, complete);
+            chars.flip();
+            emit(chars);
+        } while (result.isOverflow());
+        if (complete) {
+            chars.clear();
+            decoder.flush(chars);
+            chars.flip();
+            emit(chars);
+        }
+        return src.position() - off;
+    }
+
+    private void emit(CharBuffer decoded) {
+        if (!decoded.hasRemaining()) {
+            return;
+        }
+        int count = 0;
+        while (decoded.hasRemaining()) {
+            char c = decoded.get();
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && decoded.hasRemaining()
+                    && Character.isLowSurrogate(decoded.get(decoded.position()))) {
+                codePoint = Character.toCodePoint(c, decoded.get());
+            }
+            count += Character.toChars(Character.toUpperCase(codePoint), upper, count);
+        }
+        ensureOut(count * 3); // at most 3 UTF-8 bytes per UTF-16 char
+        ByteBuffer dst = outView;
+        dst.limit(out.length).position(outLimit);
+        upperView.limit(count).position(0);
+        encoder.reset();
+        encoder.encode(upperView, dst, true);
+        encoder.flush(dst);
+        outLimit = dst.position();
+    }
+
+    private void ensureOut(int extra) {
+        if (outLimit + extra > out.length) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, outLimit + extra));
+            outView = ByteBuffer.wrap(out);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package streams.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import streams.ByteKernel;
+import streams.ByteKernels;
+
+// Compile and run with --add-modules jdk.incubator.vector; ByteKernels loads it reflectively
+public class VectorByteKernel implements ByteKernel {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private final ByteKernel scalar = ByteKernels.scalar();
+
+    @Override
+    public void xor(byte[] buf, int off, int len, int key) {
+        int end = off + len;
+        int i = off;
+        for (int upper = off + SPECIES.loopBound(len); i < upper; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, buf, i)
+                    .lanewise(VectorOperators.XOR, (byte) key)
+                    .intoArray(buf, i);
+        }
+        scalar.xor(buf, i, end - i, key);
+    }
+
+    @Override
+    public void subtract(byte[] buf, int off, int len, int amount) {
+        int end = off + len;
+        int i = off;
+        for (int upper = off + SPECIES.loopBound(len); i < upper; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, buf, i)
+                    .sub((byte) amount)
+                    .intoArray(buf, i);
+        }
+        scalar.subtract(buf, i, end - i, amount);
+    }
+
+    @Override
+    public void toUpperCase(byte[] buf, int off, int len) {
+        int end = off + len;
+        int i = off;
+        for (int upper = off + SPECIES.loopBound(len); i < upper; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, buf, i);
+            // ASCII only, like the scalar kernel: bytes >= 0x80 are negative here and never match 'a'..'z'
+            VectorMask<Byte> lower = v.compare(VectorOperators.GE, (byte) 'a')
+                    .and(v.compare(VectorOperators.LE, (byte) 'z'));
+            v.sub((byte) ('a' - 'A'), lower).intoArray(buf, i);
+        }
+        scalar.toUpperCase(buf, i, end - i);
+    }
+}
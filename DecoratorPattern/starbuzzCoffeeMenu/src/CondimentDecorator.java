@@ -1,5 +1,33 @@
 //IMplementing the abstract Beverage class for the Condiments (the decorators)
+//Each condiment works out its description and cost once, from the ones the beverage it wraps already
+//worked out, so cost() and getDescription() no longer walk the whole chain on every call
 public abstract class CondimentDecorator extends Bevrage {
     Bevrage beverage;
-    public abstract String getDescription();
+    String name;
+    double price;
+    private final double cost;
+
+    public CondimentDecorator(Bevrage beverage, String name, double price){
+        this.beverage = beverage;
+        this.name = name;
+        this.price = price;
+        this.description = beverage.getDescription() + " with " + name;
+        this.cost = beverage.cost() + price;
+    }
+
+    public Bevrage getBeverage(){
+        return beverage;
+    }
+
+    public String getName(){
+        return name;
+    }
+
+    public double getPrice(){
+        return price;
+    }
+
+    public double cost(){
+        return cost;
+    }
 }
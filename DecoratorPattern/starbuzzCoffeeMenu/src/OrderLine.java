@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//The flattened form of a decorated beverage: the base beverage plus how many of each condiment it has.
+//Pricing it takes one step per distinct condiment, however deep the chain was.
+public class OrderLine {
+    private final Bevrage base;
+    private final Map<String, Condiment> condiments = new LinkedHashMap<>();
+
+    public OrderLine(Bevrage beverage){
+        List<CondimentDecorator> chain = new ArrayList<>();
+        while (beverage instanceof CondimentDecorator) {
+            CondimentDecorator condiment = (CondimentDecorator) beverage;
+            chain.add(condiment);
+            beverage = condiment.getBeverage();
+        }
+        base = beverage;
+        //innermost first, the order the description lists them in
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            CondimentDecorator condiment = chain.get(i);
+            condiments.computeIfAbsent(condiment.getName(), name -> new Condiment(condiment.getPrice())).count++;
+        }
+    }
+
+    public Bevrage getBase(){
+        return base;
+    }
+
+    public int getCount(String condiment){
+        Condiment entry = condiments.get(condiment);
+        return (entry != null) ? entry.count : 0;
+    }
+
+    //Changes the amount of a condiment already on the line, e.g. an extra Mocha from the cart
+    public void setCount(String condiment, int count){
+        Condiment entry = condiments.get(condiment);
+        if (entry == null) {
+            throw new IllegalArgumentException(condiment + " is not on this order line");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+        entry.count = count;
+    }
+
+    public double cost(){
+        double total = base.cost();
+        for (Condiment entry : condiments.values()) {
+            total += entry.price * entry.count;
+        }
+        return total;
+    }
+
+    public String getDescription(){
+        StringBuilder description = new StringBuilder(base.getDescription());
+        for (Map.Entry<String, Condiment> entry : condiments.entrySet()) {
+            int count = entry.getValue().count;
+            if (count > 0) {
+                description.append(" with ").append(entry.getKey());
+                if (count > 1) {
+                    description.append(" x").append(count);
+                }
+            }
+        }
+        return description.toString();
+    }
+
+    private static class Condiment {
+        private final double price;
+        private int count;
+
+        Condiment(double price){
+            this.price = price;
+        }
+    }
+}
@@ -16,5 +16,10 @@ public class StarbuzzCoffee {
         beverage3 = new Whip(beverage3);
         System.out.println(beverage3.getDescription() 
                 + " $" + beverage3.cost());
+        //The same order flattened for the cart: priced per distinct condiment, not per layer
+        OrderLine line = new OrderLine(beverage2);
+        line.setCount("Mocha", 3);
+        System.out.println(line.getDescription() 
+                + " $" + line.cost());
     }
  }
\ No newline at end of file
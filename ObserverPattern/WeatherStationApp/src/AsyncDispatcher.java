@@ -0,0 +1,316 @@
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Delivers measurements to observers off the caller's thread. Every observer gets its own bounded mailbox,
+// drained by a shared executor, so a slow display only ever delays itself.
+public class AsyncDispatcher implements AutoCloseable {
+    public enum Backpressure {
+        DROP_OLDEST,     // a full mailbox discards its oldest measurement
+        BLOCK,           // the producer waits for room (only this mode can slow ingestion down)
+        COALESCE_LATEST  // the mailbox holds one measurement, newer ones overwrite it
+    }
+
+    public static final int DEFAULT_CAPACITY = 64;
+    private static final int DRAIN_BATCH = 32; // measurements per delivery before yielding the thread
+
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final int capacity;
+    private final Backpressure backpressure;
+    // Keyed by identity like ObserverRegistry, so equal but distinct observers get their own mailboxes.
+    // Copied on every add and remove; dispatch reads the current map without locking.
+    private volatile Map<Observer, Mailbox> mailboxes = new IdentityHashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AsyncDispatcher() {
+        this(DEFAULT_CAPACITY, Backpressure.DROP_OLDEST);
+    }
+
+    public AsyncDispatcher(int capacity, Backpressure backpressure) {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "weather-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        }), true, capacity, backpressure);
+    }
+
+    // The executor stays owned by the caller and is not shut down by close()
+    public AsyncDispatcher(ExecutorService executor, int capacity, Backpressure backpressure) {
+        this(executor, false, capacity, backpressure);
+    }
+
+    private AsyncDispatcher(ExecutorService executor, boolean ownsExecutor, int capacity, Backpressure backpressure) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.capacity = (backpressure == Backpressure.COALESCE_LATEST) ? 1 : capacity;
+        this.backpressure = backpressure;
+    }
+
+    // An observer registered more than once shares one mailbox, which lives until the last remove()
+    public synchronized void add(Observer observer) {
+        Mailbox mailbox = mailboxes.get(observer);
+        if (mailbox != null) {
+            mailbox.registrations++;
+            return;
+        }
+        Map<Observer, Mailbox> next = new IdentityHashMap<>(mailboxes);
+        next.put(observer, new Mailbox(observer));
+        mailboxes = next;
+    }
+
+    // Observers without a mailbox, i.e. removed while the caller was iterating, are skipped. The measurement
+    // is stamped now, so a time-dependent observer does not see the delay of its mailbox.
+    public void dispatch(Observer[] observers, float temperature, float humidity, float pressure) {
+        long now = System.currentTimeMillis();
+        Map<Observer, Mailbox> current = mailboxes;
+        for (Observer observer : observers) {
+            Mailbox mailbox = current.get(observer);
+            if (mailbox != null) {
+                mailbox.offer(now, temperature, humidity, pressure);
+            }
+        }
+    }
+
+    // Each mailbox takes the whole batch under one lock acquisition; the batch shares one timestamp
+    public void dispatch(Observer[] observers, float[] temperatures, float[] humidities, float[] pressures,
+                         int count) {
+        dispatch(observers, null, System.currentTimeMillis(), temperatures, humidities, pressures, count);
+    }
+
+    // A batch whose samples carry their own times
+    public void dispatch(Observer[] observers, long[] timestamps, float[] temperatures, float[] humidities,
+                         float[] pressures, int count) {
+        dispatch(observers, timestamps, 0, temperatures, humidities, pressures, count);
+    }
+
+    private void dispatch(Observer[] observers, long[] timestamps, long timestamp, float[] temperatures,
+                          float[] humidities, float[] pressures, int count) {
+        Map<Observer, Mailbox> current = mailboxes;
+        for (Observer observer : observers) {
+            Mailbox mailbox = current.get(observer);
+            if (mailbox != null) {
+                mailbox.offer(timestamps, timestamp, temperatures, humidities, pressures, count);
+            }
+        }
+    }
+
+    // Once the last registration is removed, the observer's pending measurements are discarded
+    public synchronized void remove(Observer observer) {
+        Mailbox mailbox = mailboxes.get(observer);
+        if (mailbox == null || --mailbox.registrations > 0) {
+            return;
+        }
+        Map<Observer, Mailbox> next = new IdentityHashMap<>(mailboxes);
+        next.remove(observer);
+        mailboxes = next;
+        mailbox.discard();
+    }
+
+    // Measurements lost to DROP_OLDEST, overwritten by COALESCE_LATEST, or queued after the executor was shut down
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Waits until every mailbox is empty and no observer is running
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Mailbox mailbox : mailboxes.values()) {
+            if (!mailbox.awaitIdle(deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            awaitIdle(10, TimeUnit.SECONDS);
+            if (ownsExecutor) {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Ring of (temperature, humidity, pressure) triples in one float array, with their timestamps alongside,
+    // so queueing allocates nothing
+    private class Mailbox implements Runnable {
+        private final Observer observer;
+        private final float[] slots = new float[capacity * 3];
+        private final long[] times = new long[capacity];
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notFull = lock.newCondition();
+        private final Condition idle = lock.newCondition();
+        // Drain scratch, only touched by the single running drain task
+        private final long[] timestamps = new long[DRAIN_BATCH];
+        private final float[] temperatures = new float[DRAIN_BATCH];
+        private final float[] humidities = new float[DRAIN_BATCH];
+        private final float[] pressures = new float[DRAIN_BATCH];
+        private int head;
+        private int size;
+        private boolean scheduled; // a drain task is queued or running
+        private boolean removed;
+        private int registrations = 1; // guarded by the dispatcher
+
+        Mailbox(Observer observer) {
+            this.observer = observer;
+        }
+
+        void offer(long timestamp, float temperature, float humidity, float pressure) {
+            lock.lock();
+            try {
+                put(timestamp, temperature, humidity, pressure);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // The whole batch is queued under one lock acquisition; timestamps null: every sample gets timestamp
+        void offer(long[] timestamps, long timestamp, float[] temperatures, float[] humidities, float[] pressures,
+                   int count) {
+            lock.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    long time = (timestamps != null) ? timestamps[i] : timestamp;
+                    if (!put(time, temperatures[i], humidities[i], pressures[i])) {
+                        return;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Called with the lock held; false once the mailbox was removed
+        private boolean put(long timestamp, float temperature, float humidity, float pressure) {
+            if (size == capacity) {
+                if (backpressure == Backpressure.BLOCK) {
+                    while (size == capacity && !removed) {
+                        notFull.awaitUninterruptibly();
+                    }
+                } else {
+                    head = (head + 1) % capacity; // COALESCE_LATEST has capacity 1, so this overwrites
+                    size--;
+                    dropped.incrementAndGet();
+                }
+            }
+            if (removed) {
+                return false;
+            }
+            int index = (head + size) % capacity;
+            int slot = index * 3;
+            times[index] = timestamp;
+            slots[slot] = temperature;
+            slots[slot + 1] = humidity;
+            slots[slot + 2] = pressure;
+            size++;
+            if (!scheduled) {
+                // Submitted before returning: a BLOCK producer may wait for this very task to make room
+                schedule();
+            }
+            return true;
+        }
+
+        // Called with the lock held. An executor that was shut down rejects the drain task, and the queued
+        // measurements can then never be delivered: they are dropped rather than left waiting on a task that
+        // will not run, which would block BLOCK producers and awaitIdle() for good.
+        private void schedule() {
+            scheduled = true;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled = false;
+                dropped.addAndGet(size);
+                size = 0;
+                notFull.signalAll();
+                idle.signalAll();
+            }
+        }
+
+        // Delivers up to DRAIN_BATCH queued measurements in one call. If more are waiting it yields the thread to
+        // other mailboxes by resubmitting itself; otherwise the mailbox goes idle without another task.
+        @Override
+        public void run() {
+            int count;
+            lock.lock();
+            try {
+                if (size == 0) {
+                    scheduled = false;
+                    idle.signalAll();
+                    return;
+                }
+                count = Math.min(size, DRAIN_BATCH);
+                for (int i = 0; i < count; i++) {
+                    int index = (head + i) % capacity;
+                    int slot = index * 3;
+                    timestamps[i] = times[index];
+                    temperatures[i] = slots[slot];
+                    humidities[i] = slots[slot + 1];
+                    pressures[i] = slots[slot + 2];
+                }
+                head = (head + count) % capacity;
+                size -= count;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                observer.updateBatch(timestamps, temperatures, humidities, pressures, count);
+            } catch (RuntimeException e) {
+                // One failing display must not stop its own or anyone else's deliveries
+                System.err.println("Observer " + observer + " failed: " + e);
+            }
+            lock.lock();
+            try {
+                if (size == 0) {
+                    scheduled = false;
+                    idle.signalAll();
+                } else {
+                    schedule();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void discard() {
+            lock.lock();
+            try {
+                size = 0;
+                removed = true;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean awaitIdle(long deadline) throws InterruptedException {
+            lock.lock();
+            try {
+                while (scheduled) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    idle.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
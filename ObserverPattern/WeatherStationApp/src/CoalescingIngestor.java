@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Sits between high-rate sensors and WeatherData. Samples are collected in a buffer and published once per
+// tick, so observers see at most one notification per tick however fast the sensors push.
+public class CoalescingIngestor implements AutoCloseable {
+    public enum Mode {
+        LATEST,    // publish only the newest sample of the tick
+        AGGREGATE, // publish the mean temperature, humidity and pressure of the tick
+        BATCH      // publish every sample of the tick as one batch
+    }
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final WeatherData weatherData;
+    private final Mode mode;
+    private final ScheduledExecutorService scheduler; // null: the caller calls tick() itself
+    // Samples of the current tick. Sensors fill one buffer while tick() publishes the other.
+    private Buffer filling;
+    private Buffer publishing;
+    private final Object tickLock = new Object();
+    // The single sample published by LATEST and AGGREGATE, only touched under tickLock
+    private final long[] oneTimestamp = new long[1];
+    private final float[] oneTemperature = new float[1];
+    private final float[] oneHumidity = new float[1];
+    private final float[] onePressure = new float[1];
+
+    // Manual ticks
+    public CoalescingIngestor(WeatherData weatherData, Mode mode) {
+        this(weatherData, mode, null);
+    }
+
+    public CoalescingIngestor(WeatherData weatherData, Mode mode, long tickMillis) {
+        this(weatherData, mode, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "weather-ingest");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        scheduler.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private CoalescingIngestor(WeatherData weatherData, Mode mode, ScheduledExecutorService scheduler) {
+        this.weatherData = weatherData;
+        this.mode = mode;
+        this.scheduler = scheduler;
+        this.filling = new Buffer(mode == Mode.BATCH);
+        this.publishing = new Buffer(mode == Mode.BATCH);
+    }
+
+    // Safe from any number of sensor threads. The sample is stamped with its arrival time.
+    public synchronized void add(float temperature, float humidity, float pressure) {
+        filling.add(System.currentTimeMillis(), temperature, humidity, pressure);
+    }
+
+    // For sensors that stamp their own samples (epoch millis)
+    public synchronized void add(long timestamp, float temperature, float humidity, float pressure) {
+        filling.add(timestamp, temperature, humidity, pressure);
+    }
+
+    // The samples of a batch share its arrival time
+    public synchronized void add(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            filling.add(now, temperatures[i], humidities[i], pressures[i]);
+        }
+    }
+
+    // Publishes what arrived since the last tick; does nothing when no sample arrived. An observer that
+    // throws is reported on System.err.
+    public void tick() {
+        // Ticks run one at a time, so the buffer being published is never swapped back to the sensors early
+        synchronized (tickLock) {
+            Buffer buffer;
+            synchronized (this) {
+                if (filling.count == 0) {
+                    return;
+                }
+                buffer = filling;
+                filling = publishing;
+                publishing = buffer;
+            }
+            try {
+                publish(buffer);
+            } catch (RuntimeException e) {
+                // Reported rather than thrown: an exception would cancel the scheduled tick for good.
+                // The tick's samples are lost, later ticks publish as usual.
+                System.err.println("Publishing " + buffer.count + " samples failed: " + e);
+            } finally {
+                buffer.clear();
+            }
+        }
+    }
+
+    // Samples are published with their timestamps, so a trend sees when each one was taken rather than
+    // when the tick ran
+    private void publish(Buffer buffer) {
+        int last = buffer.last();
+        switch (mode) {
+            case LATEST:
+                publishOne(buffer.timestamps[last], buffer.temperatures[last], buffer.humidities[last],
+                        buffer.pressures[last]);
+                break;
+            case AGGREGATE:
+                // The mean sample is placed at the mean time of the samples it summarizes
+                publishOne(buffer.firstTimestamp + buffer.timeOffsetSum / buffer.count,
+                        (float) (buffer.temperatureSum / buffer.count), (float) (buffer.humiditySum / buffer.count),
+                        (float) (buffer.pressureSum / buffer.count));
+                break;
+            case BATCH:
+                weatherData.setMeasurements(buffer.timestamps, buffer.temperatures, buffer.humidities,
+                        buffer.pressures, buffer.count);
+                break;
+        }
+    }
+
+    private void publishOne(long timestamp, float temperature, float humidity, float pressure) {
+        oneTimestamp[0] = timestamp;
+        oneTemperature[0] = temperature;
+        oneHumidity[0] = humidity;
+        onePressure[0] = pressure;
+        weatherData.setMeasurements(oneTimestamp, oneTemperature, oneHumidity, onePressure, 1);
+    }
+
+    // Publishes the pending samples and stops the tick thread
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        tick();
+    }
+
+    // Columnar samples plus running sums, reused from tick to tick. Unless every sample is kept, slot 0
+    // only ever holds the newest one, so LATEST and AGGREGATE use constant memory at any rate.
+    private static class Buffer {
+        private final boolean keepAll;
+        private long[] timestamps;
+        private float[] temperatures;
+        private float[] humidities;
+        private float[] pressures;
+        private int count;
+        private double temperatureSum;
+        private double humiditySum;
+        private double pressureSum;
+        private long firstTimestamp;
+        private long timeOffsetSum; // relative to firstTimestamp, so the sum cannot overflow
+
+        Buffer(boolean keepAll) {
+            int capacity = keepAll ? INITIAL_CAPACITY : 1;
+            this.keepAll = keepAll;
+            this.timestamps = new long[capacity];
+            this.temperatures = new float[capacity];
+            this.humidities = new float[capacity];
+            this.pressures = new float[capacity];
+        }
+
+        void add(long timestamp, float temperature, float humidity, float pressure) {
+            int slot = keepAll ? count : 0;
+            if (slot == temperatures.length) {
+                timestamps = Arrays.copyOf(timestamps, slot * 2);
+                temperatures = Arrays.copyOf(temperatures, slot * 2);
+                humidities = Arrays.copyOf(humidities, slot * 2);
+                pressures = Arrays.copyOf(pressures, slot * 2);
+            }
+            if (count == 0) {
+                firstTimestamp = timestamp;
+            }
+            timestamps[slot] = timestamp;
+            temperatures[slot] = temperature;
+            humidities[slot] = humidity;
+            pressures[slot] = pressure;
+            count++;
+            timeOffsetSum += timestamp - firstTimestamp;
+            temperatureSum += temperature;
+            humiditySum += humidity;
+            pressureSum += pressure;
+        }
+
+        int last() {
+            return keepAll ? count - 1 : 0;
+        }
+
+        void clear() {
+            count = 0;
+            temperatureSum = 0;
+            humiditySum = 0;
+            pressureSum = 0;
+            timeOffsetSum = 0;
+        }
+    }
+}
@@ -1,22 +1,66 @@
-public class CurrentConditionsDisplay implements Observer, DisplayElement {
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class CurrentConditionsDisplay implements Observer, DisplayElement, Snapshottable {
     private float temperature;
     private float humidity;
     private Subject weatherData;
+    private final DisplayRenderer.Slot slot; // null: display on every update
+    private final StringBuilder text = new StringBuilder(64);
 
     public CurrentConditionsDisplay(Subject weatherData) {
+        this(weatherData, null);
+    }
+
+    // Lazy mode: updates only mark the display dirty and the renderer draws it
+    public CurrentConditionsDisplay(Subject weatherData, DisplayRenderer renderer) {
         this.weatherData = weatherData;
+        this.slot = (renderer != null) ? renderer.register(this) : null;
         weatherData.registerObserver(this);
     }
 
     @Override
-    public void update(float temperature, float humidity, float pressure) {
+    public synchronized void update(float temperature, float humidity, float pressure) {
         this.temperature = temperature;
         this.humidity = humidity;
-        display();
+        if (slot != null) {
+            slot.markDirty();
+        } else {
+            display();
+        }
+    }
+
+    // Only the latest sample is shown, so a batch is one update
+    @Override
+    public synchronized void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        if (count > 0) {
+            update(temperatures[count - 1], humidities[count - 1], pressures[count - 1]);
+        }
+    }
+
+    @Override
+    public synchronized void display() {
+        text.setLength(0);
+        render(text);
+        System.out.print(text);
+    }
+
+    @Override
+    public synchronized void render(StringBuilder out) {
+        out.append("Current conditions: ").append(temperature).append("°C and ").append(humidity)
+                .append("% humidity\n");
+    }
+
+    @Override
+    public synchronized void writeSnapshot(DataOutput out) throws IOException {
+        out.writeFloat(temperature);
+        out.writeFloat(humidity);
     }
 
     @Override
-    public void display() {
-        System.out.println("Current conditions: " + temperature + "°C and " + humidity + "% humidity");
+    public synchronized void readSnapshot(DataInput in) throws IOException {
+        temperature = in.readFloat();
+        humidity = in.readFloat();
     }
 }
@@ -1,3 +1,6 @@
 public interface DisplayElement {
     void display();
+
+    // Appends what display() prints, so a DisplayRenderer can draw several displays in one write
+    void render(StringBuilder out);
 }
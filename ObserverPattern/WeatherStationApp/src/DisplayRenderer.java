@@ -0,0 +1,121 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Renders displays lazily. An update only marks its display dirty; a frame, run at a fixed rate or by
+// render(), draws each dirty display once into a reused StringBuilder and writes the whole frame through one
+// buffered writer. The cost per frame is capped by the number of displays, not by the update rate.
+public class DisplayRenderer implements AutoCloseable {
+    private final Writer out;
+    private final ScheduledExecutorService scheduler; // null: frames only run on render()
+    private final CopyOnWriteArrayList<Slot> slots = new CopyOnWriteArrayList<>();
+    private final StringBuilder frame = new StringBuilder(1024);
+    private long frames;
+
+    // Frames on demand, written to System.out
+    public DisplayRenderer() {
+        this(new BufferedWriter(new OutputStreamWriter(System.out)), 0);
+    }
+
+    public DisplayRenderer(Writer out, long frameMillis) {
+        this.out = (out instanceof BufferedWriter) ? out : new BufferedWriter(out);
+        if (frameMillis > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "display-renderer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(this::renderFrame, frameMillis, frameMillis, TimeUnit.MILLISECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    // The display calls markDirty() on the returned slot whenever its state changes
+    public Slot register(DisplayElement display) {
+        Slot slot = new Slot(display);
+        slots.add(slot);
+        return slot;
+    }
+
+    public void unregister(Slot slot) {
+        slots.remove(slot);
+    }
+
+    // Draws every display that changed since the last frame; does nothing when none did. A display that
+    // throws is reported on System.err and left out of the frame.
+    public synchronized void render() {
+        frame.setLength(0);
+        for (Slot slot : slots) {
+            if (slot.dirty.getAndSet(false)) {
+                int start = frame.length();
+                try {
+                    slot.display.render(frame);
+                } catch (RuntimeException e) {
+                    frame.setLength(start); // drop whatever it drew before failing
+                    System.err.println("Display " + slot.display + " failed to render: " + e);
+                }
+            }
+        }
+        if (frame.length() == 0) {
+            return;
+        }
+        try {
+            out.append(frame);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        frames++;
+    }
+
+    // Scheduled frames report a failed write instead of throwing, which would cancel every later frame
+    private void renderFrame() {
+        try {
+            render();
+        } catch (RuntimeException e) {
+            System.err.println("Rendering a frame failed: " + e);
+        }
+    }
+
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    // Stops the frame timer and draws whatever is still dirty
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        render();
+    }
+
+    public static class Slot {
+        private final DisplayElement display;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+
+        private Slot(DisplayElement display) {
+            this.display = display;
+        }
+
+        // Cheap enough for every update: once dirty, the flag is only read until the next frame
+        public void markDirty() {
+            if (!dirty.get()) {
+                dirty.set(true);
+            }
+        }
+    }
+}
@@ -1,29 +1,113 @@
-public class ForecastDisplay implements Observer, DisplayElement {
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class ForecastDisplay implements Observer, DisplayElement, Snapshottable {
+    private static final String STATION_ID = "local"; // the key this display's readings have in its engine
+
     private float lastPressure;
     private float currentPressure = 29.92f;
     private Subject weatherData;
+    private final DisplayRenderer.Slot slot; // null: display on every update
+    private final ForecastEngine engine; // null: compare the last two pressures
+    private final StringBuilder text = new StringBuilder(64);
 
     public ForecastDisplay(Subject weatherData) {
+        this(weatherData, null);
+    }
+
+    // Lazy mode: updates only mark the display dirty and the renderer draws it
+    public ForecastDisplay(Subject weatherData, DisplayRenderer renderer) {
+        this(weatherData, null, renderer);
+    }
+
+    // Forecasts from engine's pressure trend over its window instead of from the last two pressures, which
+    // flips on every bit of noise. Readings are stamped with the time they arrive.
+    public ForecastDisplay(Subject weatherData, ForecastEngine engine, DisplayRenderer renderer) {
         this.weatherData = weatherData;
+        this.engine = engine;
+        this.slot = (renderer != null) ? renderer.register(this) : null;
         weatherData.registerObserver(this);
     }
 
     @Override
-    public void update(float temperature, float humidity, float pressure) {
+    public synchronized void update(float temperature, float humidity, float pressure) {
+        record(System.currentTimeMillis(), pressure);
+        changed();
+    }
+
+    // Without an engine only the last two pressures matter; either way the batch is displayed once
+    @Override
+    public synchronized void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            record(now, pressures[i]);
+        }
+        changed();
+    }
+
+    // The engine's trend is fitted against the samples' own times
+    @Override
+    public synchronized void updateBatch(long[] timestamps, float[] temperatures, float[] humidities,
+                                         float[] pressures, int count) {
+        for (int i = 0; i < count; i++) {
+            record(timestamps[i], pressures[i]);
+        }
+        changed();
+    }
+
+    private void record(long timestamp, float pressure) {
         lastPressure = currentPressure;
         currentPressure = pressure;
-        display();
+        if (engine != null) {
+            engine.add(STATION_ID, timestamp, pressure);
+        }
+    }
+
+    private void changed() {
+        if (slot != null) {
+            slot.markDirty();
+        } else {
+            display();
+        }
+    }
+
+    @Override
+    public synchronized void display() {
+        text.setLength(0);
+        render(text);
+        System.out.print(text);
     }
 
     @Override
-    public void display() {
-        System.out.print("Forecast: ");
-        if (currentPressure > lastPressure) {
-            System.out.println("Improving weather on the way!");
+    public synchronized void render(StringBuilder out) {
+        out.append("Forecast: ");
+        if (engine != null) {
+            out.append(engine.getForecast(STATION_ID).getMessage()).append('\n');
+        } else if (currentPressure > lastPressure) {
+            out.append("Improving weather on the way!\n");
         } else if (currentPressure == lastPressure) {
-            System.out.println("More of the same.");
+            out.append("More of the same.\n");
         } else {
-            System.out.println("Watch out for cooler, rainy weather.");
+            out.append("Watch out for cooler, rainy weather.\n");
+        }
+    }
+
+    @Override
+    public synchronized void writeSnapshot(DataOutput out) throws IOException {
+        out.writeFloat(lastPressure);
+        out.writeFloat(currentPressure);
+        if (engine != null) {
+            engine.writeSnapshot(out);
+        }
+    }
+
+    @Override
+    public synchronized void readSnapshot(DataInput in) throws IOException {
+        lastPressure = in.readFloat();
+        currentPressure = in.readFloat();
+        if (engine != null) {
+            engine.readSnapshot(in);
         }
     }
 }
@@ -0,0 +1,279 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Forecasts from the pressure trend of each station: the least-squares slope over the readings of the last
+// windowMillis of event time. Means and co-moments are updated when a reading enters or leaves the window,
+// so a reading costs O(1) however large the window is. The forecast only changes when the slope crosses
+// enterSlope and only changes back once it falls under exitSlope, so noise around a threshold cannot make
+// it flip on every reading.
+public class ForecastEngine implements SensorObserver, Snapshottable {
+    public enum Forecast {
+        IMPROVING("Improving weather on the way!"),
+        STEADY("More of the same."),
+        WORSENING("Watch out for cooler, rainy weather.");
+
+        private final String message;
+
+        Forecast(String message) {
+            this.message = message;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public static final long DEFAULT_WINDOW_MILLIS = 3 * 60 * 60 * 1000L;
+    public static final int DEFAULT_MAX_SAMPLES = 100_000;
+    public static final double DEFAULT_ENTER_SLOPE = 0.5; // pressure units per hour, e.g. hPa/h
+    public static final double DEFAULT_EXIT_SLOPE = 0.2;
+    private static final int MIN_SAMPLES = 3;
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+    private final long windowMillis;
+    private final int maxSamples;
+    private final double enterSlope;
+    private final double exitSlope;
+    private final Map<String, Trend> trends = new ConcurrentHashMap<>();
+    private final AtomicLong lateReadings = new AtomicLong();
+
+    public ForecastEngine() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_SAMPLES, DEFAULT_ENTER_SLOPE, DEFAULT_EXIT_SLOPE);
+    }
+
+    // The window holds at most maxSamples readings, dropping the oldest by timestamp
+    public ForecastEngine(long windowMillis, int maxSamples, double enterSlope, double exitSlope) {
+        if (windowMillis <= 0 || maxSamples < MIN_SAMPLES) {
+            throw new IllegalArgumentException("The window needs a positive length and at least " + MIN_SAMPLES
+                    + " samples");
+        }
+        if (exitSlope < 0 || exitSlope > enterSlope) {
+            throw new IllegalArgumentException("Need 0 <= exitSlope <= enterSlope");
+        }
+        this.windowMillis = windowMillis;
+        this.maxSamples = maxSamples;
+        this.enterSlope = enterSlope;
+        this.exitSlope = exitSlope;
+    }
+
+    // Subscribe with TopicFilter.all().metrics(Metric.PRESSURE); other metrics are ignored
+    @Override
+    public void onReading(SensorReading reading) {
+        if (reading.getMetric() == Metric.PRESSURE) {
+            add(reading.getStationId(), reading.getTimestamp(), reading.getValue());
+        }
+    }
+
+    // Readings may arrive out of order. One that is already outside the window, behind the station's newest
+    // reading, is counted as late and ignored.
+    public Forecast add(String stationId, long timestamp, double pressure) {
+        Trend trend = trends.computeIfAbsent(stationId, id -> new Trend());
+        synchronized (trend) {
+            if (!trend.add(timestamp, pressure)) {
+                lateReadings.incrementAndGet();
+            }
+            return trend.forecast;
+        }
+    }
+
+    // STEADY for a station without enough readings
+    public Forecast getForecast(String stationId) {
+        Trend trend = trends.get(stationId);
+        if (trend == null) {
+            return Forecast.STEADY;
+        }
+        synchronized (trend) {
+            return trend.forecast;
+        }
+    }
+
+    // Pressure change per hour over the window; NaN until the window spans two distinct timestamps
+    public double getSlopePerHour(String stationId) {
+        Trend trend = trends.get(stationId);
+        if (trend == null) {
+            return Double.NaN;
+        }
+        synchronized (trend) {
+            return trend.slope();
+        }
+    }
+
+    public int getWindowSize(String stationId) {
+        Trend trend = trends.get(stationId);
+        if (trend == null) {
+            return 0;
+        }
+        synchronized (trend) {
+            return trend.size;
+        }
+    }
+
+    public long getLateReadings() {
+        return lateReadings.get();
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeLong(lateReadings.get());
+        out.writeInt(trends.size());
+        for (Map.Entry<String, Trend> entry : trends.entrySet()) {
+            Trend trend = entry.getValue();
+            synchronized (trend) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(trend.forecast.ordinal());
+                out.writeInt(trend.size);
+                for (int i = 0; i < trend.size; i++) {
+                    int slot = (trend.head + i) & trend.mask;
+                    out.writeLong(trend.times[slot]);
+                    out.writeDouble(trend.pressures[slot]);
+                }
+            }
+        }
+    }
+
+    // Replaces every station's window and forecast with the saved ones
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        trends.clear();
+        lateReadings.set(in.readLong());
+        int stations = in.readInt();
+        for (int s = 0; s < stations; s++) {
+            String stationId = in.readUTF();
+            Forecast forecast = Forecast.values()[in.readInt()];
+            Trend trend = new Trend();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long timestamp = in.readLong();
+                trend.add(timestamp, in.readDouble());
+            }
+            trend.forecast = forecast;
+            trends.put(stationId, trend);
+        }
+    }
+
+    // One station's window: readings ordered by timestamp in a power-of-two ring, plus the running means and
+    // co-moments of (hours since origin, pressure) that the slope is computed from
+    private class Trend {
+        private long[] times = new long[16];
+        private double[] pressures = new double[16];
+        private int mask = 15;
+        private int head;
+        private int size;
+        private long origin; // time of the first reading, keeps x small
+        private double meanX;
+        private double meanY;
+        private double coXY; // sum of (x - meanX)(y - meanY)
+        private double coXX; // sum of (x - meanX)^2
+        private Forecast forecast = Forecast.STEADY;
+
+        // False when the reading is too late to enter the window
+        boolean add(long timestamp, double pressure) {
+            if (size == 0) {
+                origin = timestamp;
+            } else {
+                long newest = times[(head + size - 1) & mask];
+                if (timestamp <= newest - windowMillis) {
+                    return false;
+                }
+            }
+            if (size == times.length) {
+                grow();
+            }
+            // Shift the readings newer than this one back a slot; for in-order readings none are
+            int i = size;
+            while (i > 0 && times[(head + i - 1) & mask] > timestamp) {
+                times[(head + i) & mask] = times[(head + i - 1) & mask];
+                pressures[(head + i) & mask] = pressures[(head + i - 1) & mask];
+                i--;
+            }
+            times[(head + i) & mask] = timestamp;
+            pressures[(head + i) & mask] = pressure;
+            size++;
+            include(timestamp, pressure);
+
+            long cutoff = times[(head + size - 1) & mask] - windowMillis;
+            while (size > maxSamples || (size > 0 && times[head] <= cutoff)) {
+                exclude(times[head], pressures[head]);
+                head = (head + 1) & mask;
+                size--;
+            }
+            updateForecast();
+            return true;
+        }
+
+        double slope() {
+            return (size >= 2 && coXX > 0) ? coXY / coXX : Double.NaN;
+        }
+
+        private void include(long timestamp, double pressure) {
+            double x = (timestamp - origin) / MILLIS_PER_HOUR;
+            double dx = x - meanX;
+            meanX += dx / size;
+            meanY += (pressure - meanY) / size;
+            coXY += dx * (pressure - meanY);
+            coXX += dx * (x - meanX);
+        }
+
+        // The inverse of include(), with size already counting the reading
+        private void exclude(long timestamp, double pressure) {
+            if (size == 1) {
+                meanX = 0;
+                meanY = 0;
+                coXY = 0;
+                coXX = 0;
+                return;
+            }
+            double x = (timestamp - origin) / MILLIS_PER_HOUR;
+            double remainingX = meanX - (x - meanX) / (size - 1);
+            coXY -= (x - remainingX) * (pressure - meanY);
+            coXX -= (x - remainingX) * (x - meanX);
+            meanY -= (pressure - meanY) / (size - 1);
+            meanX = remainingX;
+            coXX = Math.max(coXX, 0); // rounding must not make the spread negative
+        }
+
+        private void updateForecast() {
+            double slope = slope();
+            if (size < MIN_SAMPLES || Double.isNaN(slope)) {
+                return;
+            }
+            switch (forecast) {
+                case IMPROVING:
+                    if (slope < exitSlope) {
+                        forecast = (slope <= -enterSlope) ? Forecast.WORSENING : Forecast.STEADY;
+                    }
+                    break;
+                case WORSENING:
+                    if (slope > -exitSlope) {
+                        forecast = (slope >= enterSlope) ? Forecast.IMPROVING : Forecast.STEADY;
+                    }
+                    break;
+                default:
+                    if (slope >= enterSlope) {
+                        forecast = Forecast.IMPROVING;
+                    } else if (slope <= -enterSlope) {
+                        forecast = Forecast.WORSENING;
+                    }
+                    break;
+            }
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            long[] grownTimes = new long[capacity];
+            double[] grownPressures = new double[capacity];
+            for (int i = 0; i < size; i++) {
+                grownTimes[i] = times[(head + i) & mask];
+                grownPressures[i] = pressures[(head + i) & mask];
+            }
+            times = grownTimes;
+            pressures = grownPressures;
+            mask = capacity - 1;
+            head = 0;
+        }
+    }
+}
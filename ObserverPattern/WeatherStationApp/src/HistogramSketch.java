@@ -0,0 +1,135 @@
+import java.util.Arrays;
+
+// HDR-style log-linear histogram for floats: buckets keep the top PRECISION_BITS bits of the mantissa, so a
+// quantile is off by at most 1/2^PRECISION_BITS of the value. Counts live in one int[] that only spans the
+// buckets seen so far, which stays small for real sensor ranges and is bounded for any input. Sketches with
+// the same precision merge by adding counts, and single values can be removed again for sliding windows.
+public class HistogramSketch {
+    private static final int PRECISION_BITS = 7;
+    private static final int SHIFT = 23 - PRECISION_BITS;
+    private static final float MIN_MAGNITUDE = 1.0f / 1024; // smaller values share the zero bucket
+    // Raw key of MIN_MAGNITUDE; keys are shifted by it so the buckets around zero are adjacent
+    private static final int GAP = (Float.floatToIntBits(MIN_MAGNITUDE) >> SHIFT) - 1;
+
+    private int[] counts = new int[0];
+    private int lowestKey; // key of counts[0]
+    private long total;
+
+    public void add(float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        int key = key(value);
+        if (counts.length == 0) {
+            counts = new int[64];
+            lowestKey = key - 32;
+        } else if (key < lowestKey || key >= lowestKey + counts.length) {
+            grow(key);
+        }
+        counts[key - lowestKey]++;
+        total++;
+    }
+
+    // Takes back one earlier add(value)
+    public void remove(float value) {
+        if (Float.isNaN(value) || total == 0) {
+            return;
+        }
+        int index = key(value) - lowestKey;
+        if (index >= 0 && index < counts.length && counts[index] > 0) {
+            counts[index]--;
+            total--;
+        }
+    }
+
+    public void merge(HistogramSketch other) {
+        if (other.total == 0) {
+            return;
+        }
+        int first = other.lowestKey;
+        int last = other.lowestKey + other.counts.length - 1;
+        if (counts.length == 0) {
+            counts = new int[other.counts.length];
+            lowestKey = first;
+        } else {
+            grow(first);
+            grow(last);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[first - lowestKey + i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    // Value at quantile q (0..1), NaN while empty
+    public float quantile(double q) {
+        if (total == 0) {
+            return Float.NaN;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        if (rank > total / 2) {
+            // High quantiles are found sooner from the top
+            long fromTop = total - rank + 1;
+            for (int i = counts.length - 1; i > 0; i--) {
+                seen += counts[i];
+                if (seen >= fromTop) {
+                    return value(lowestKey + i);
+                }
+            }
+            return value(lowestKey);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return value(lowestKey + i);
+            }
+        }
+        return value(lowestKey + counts.length - 1);
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    private void grow(int key) {
+        int first = Math.min(lowestKey, key);
+        int last = Math.max(lowestKey + counts.length - 1, key);
+        if (first == lowestKey && last == lowestKey + counts.length - 1) {
+            return;
+        }
+        // Leave headroom on the side that grew so a drifting range does not copy on every new bucket
+        int size = Math.max(last - first + 1, counts.length * 2);
+        int newLowest = (key < lowestKey) ? last - size + 1 : first;
+        int[] grown = new int[size];
+        System.arraycopy(counts, 0, grown, lowestKey - newLowest, counts.length);
+        counts = grown;
+        lowestKey = newLowest;
+    }
+
+    // Float bits reordered so that the int order matches the float order, then truncated to the bucket
+    private static int key(float value) {
+        if (Math.abs(value) < MIN_MAGNITUDE) {
+            return 0;
+        }
+        int bits = Float.floatToIntBits(value);
+        int ordered = bits ^ ((bits >> 31) & 0x7fffffff);
+        int key = ordered >> SHIFT;
+        return (key > 0) ? key - GAP : key + GAP;
+    }
+
+    // Middle of the bucket
+    private static float value(int key) {
+        if (key == 0) {
+            return 0.0f;
+        }
+        int raw = (key > 0) ? key + GAP : key - GAP;
+        int ordered = (raw << SHIFT) + (1 << (SHIFT - 1));
+        return Float.intBitsToFloat(ordered ^ ((ordered >> 31) & 0x7fffffff));
+    }
+}
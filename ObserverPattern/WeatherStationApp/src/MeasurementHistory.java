@@ -0,0 +1,228 @@
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Timestamped measurement history kept in primitive column chunks: one long[] for timestamps and one float[]
+// per measurement, 20 bytes a sample and no object per reading. Chunks form a ring, so once the retention
+// limit is reached the oldest chunk is reused instead of allocating. Timestamps never decrease, which lets
+// range queries binary search.
+public class MeasurementHistory {
+    public static final int DEFAULT_CHUNK_SIZE = 65_536;
+
+    // Receives the samples of a range query in time order
+    public interface SampleVisitor {
+        void accept(long timestamp, float temperature, float humidity, float pressure);
+    }
+
+    private final int chunkSize;
+    private final long maxAgeMillis; // 0: only the sample count limits retention
+    private final long[][] timestamps;
+    private final float[][] temperatures;
+    private final float[][] humidities;
+    private final float[][] pressures;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Samples are numbered from 0 in arrival order; [start, end) are the ones still retained
+    private long start;
+    private long end;
+
+    public MeasurementHistory(int maxSamples) {
+        this(maxSamples, 0, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Keeps at least maxSamples samples (at most one chunk more) and none older than maxAgeMillis
+    public MeasurementHistory(int maxSamples, long maxAgeMillis, int chunkSize) {
+        if (maxSamples < 1 || chunkSize < 1 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("Invalid history limits");
+        }
+        int chunks = (maxSamples + chunkSize - 1) / chunkSize + 1; // the chunk being filled plus the full ones
+        this.chunkSize = chunkSize;
+        this.maxAgeMillis = maxAgeMillis;
+        this.timestamps = new long[chunks][];
+        this.temperatures = new float[chunks][];
+        this.humidities = new float[chunks][];
+        this.pressures = new float[chunks][];
+    }
+
+    // Stamps the sample with the wall clock, never earlier than the previous sample
+    public void append(float temperature, float humidity, float pressure) {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            appendLocked((end > start) ? Math.max(now, timestampAt(end - 1)) : now, temperature, humidity, pressure);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A batch shares one arrival timestamp and one lock acquisition
+    public void append(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        lock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            long timestamp = (end > start) ? Math.max(now, timestampAt(end - 1)) : now;
+            for (int i = 0; i < count; i++) {
+                appendLocked(timestamp, temperatures[i], humidities[i], pressures[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Samples stamped elsewhere, e.g. replayed from a MeasurementLog; one older than the previous sample is
+    // stamped with the previous sample's time so the history stays ordered
+    public void append(long[] sampleTimes, float[] temperatures, float[] humidities, float[] pressures, int count) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                long timestamp = (end > start) ? Math.max(sampleTimes[i], timestampAt(end - 1)) : sampleTimes[i];
+                appendLocked(timestamp, temperatures[i], humidities[i], pressures[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void append(long timestamp, float temperature, float humidity, float pressure) {
+        lock.writeLock().lock();
+        try {
+            if (end > start && timestamp < timestampAt(end - 1)) {
+                throw new IllegalArgumentException("Timestamp " + timestamp + " is older than the last sample");
+            }
+            appendLocked(timestamp, temperature, humidity, pressure);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void appendLocked(long timestamp, float temperature, float humidity, float pressure) {
+        int chunk = chunkOf(end);
+        int offset = (int) (end % chunkSize);
+        if (offset == 0) {
+            if (timestamps[chunk] == null) {
+                timestamps[chunk] = new long[chunkSize];
+                temperatures[chunk] = new float[chunkSize];
+                humidities[chunk] = new float[chunkSize];
+                pressures[chunk] = new float[chunkSize];
+            }
+            // Reusing a chunk drops the samples it held
+            start = Math.max(start, end - (long) (timestamps.length - 1) * chunkSize);
+        }
+        timestamps[chunk][offset] = timestamp;
+        temperatures[chunk][offset] = temperature;
+        humidities[chunk][offset] = humidity;
+        pressures[chunk][offset] = pressure;
+        end++;
+        if (maxAgeMillis > 0) {
+            // Every sample expires once, so this walk is O(1) amortized
+            long cutoff = timestamp - maxAgeMillis;
+            while (start < end && timestampAt(start) < cutoff) {
+                start++;
+            }
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return end - start;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Number of samples with fromMillis <= timestamp < toMillis
+    public long count(long fromMillis, long toMillis) {
+        lock.readLock().lock();
+        try {
+            return Math.max(0, lowerBound(toMillis) - lowerBound(fromMillis));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Visits the samples with fromMillis <= timestamp < toMillis; writers wait until the visit is done
+    public void forEach(long fromMillis, long toMillis, SampleVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            long last = lowerBound(toMillis);
+            for (long i = lowerBound(fromMillis); i < last; ) {
+                int chunk = chunkOf(i);
+                int offset = (int) (i % chunkSize);
+                int run = (int) Math.min(chunkSize - offset, last - i);
+                long[] ts = timestamps[chunk];
+                float[] t = temperatures[chunk];
+                float[] h = humidities[chunk];
+                float[] p = pressures[chunk];
+                for (int j = offset; j < offset + run; j++) {
+                    visitor.accept(ts[j], t[j], h[j], p[j]);
+                }
+                i += run;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Mean temperature over fromMillis <= timestamp < toMillis, NaN when the range is empty
+    public double averageTemperature(long fromMillis, long toMillis) {
+        lock.readLock().lock();
+        try {
+            long first = lowerBound(fromMillis);
+            long last = lowerBound(toMillis);
+            if (first >= last) {
+                return Double.NaN;
+            }
+            double sum = 0;
+            for (long i = first; i < last; ) {
+                int chunk = chunkOf(i);
+                int offset = (int) (i % chunkSize);
+                int run = (int) Math.min(chunkSize - offset, last - i);
+                float[] t = temperatures[chunk];
+                for (int j = offset; j < offset + run; j++) {
+                    sum += t[j];
+                }
+                i += run;
+            }
+            return sum / (last - first);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Bytes held by the column chunks allocated so far
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long chunks = 0;
+            for (long[] chunk : timestamps) {
+                if (chunk != null) {
+                    chunks++;
+                }
+            }
+            return chunks * chunkSize * (Long.BYTES + 3 * Float.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // First retained sample with timestamp >= millis (end if none); O(log n)
+    private long lowerBound(long millis) {
+        long low = start;
+        long high = end;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestampAt(mid) < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private long timestampAt(long sample) {
+        return timestamps[chunkOf(sample)][(int) (sample % chunkSize)];
+    }
+
+    private int chunkOf(long sample) {
+        return (int) ((sample / chunkSize) % timestamps.length);
+    }
+}
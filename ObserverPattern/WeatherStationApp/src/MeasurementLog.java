@@ -0,0 +1,534 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+// Write-ahead log of measurements. Records are fixed-width (timestamp, temperature, humidity, pressure,
+// CRC32C: 24 bytes) and numbered from 0. Appends fill an in-memory buffer; a commit thread writes it to the
+// current segment file through a FileChannel, so one write (and at most one fsync) covers every record
+// appended since the previous commit. A checkpoint saves a snapshot of the observers' state and starts a
+// new segment, after which the older segments are deleted, so replay only ever reads the tail.
+public class MeasurementLog implements AutoCloseable {
+    public enum Durability {
+        WRITE_BEHIND, // at most one commit per commit interval reaches the OS; fsync only on flush, checkpoint, close
+        FSYNC_BATCH,  // at most one commit per commit interval, each fsynced; appenders do not wait for it
+        FSYNC_WAIT    // append returns once the commit holding its record is fsynced; commits start as soon as
+                      // an appender waits, and appenders arriving during an fsync share the next one
+    }
+
+    public static final int RECORD_SIZE = 24;
+    public static final long DEFAULT_COMMIT_MILLIS = 10;
+    private static final int SEGMENT_MAGIC = 0x57414c31; // "WAL1"
+    private static final int SNAPSHOT_MAGIC = 0x534e5031; // "SNP1"
+    private static final int HEADER_SIZE = 16; // magic, version, first record number
+    private static final int VERSION = 1;
+    private static final int BUFFER_RECORDS = 1 << 15;
+    private static final int REPLAY_BATCH = 4096;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+
+    private final Path directory;
+    private final Durability durability;
+    private final long commitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition commitWanted = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private ByteBuffer filling = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+    private final CRC32C appendCrc = new CRC32C();
+    private long nextRecord;      // number of the next appended record
+    private long committedRecord; // records below this are written to their segment
+    private boolean closed;
+    private boolean commitNow; // flush(), a full buffer or an FSYNC_WAIT appender wants a commit without delay
+    private long lastCommitNanos;
+    private IOException failure;
+
+    // The commit thread writes and checkpoints roll segments while holding this, never both at once
+    private final Object segmentLock = new Object();
+    private FileChannel segment;
+    private long segmentFirstRecord;
+    private final Thread committer;
+
+    // Opens the log in directory, creating it if needed. A record torn by a crash is cut off the end.
+    // Outside FSYNC_WAIT, commits are at least commitMillis apart, so a commit (and its fsync) covers
+    // every record appended in the interval; flush() and a full buffer commit early.
+    public MeasurementLog(Path directory, Durability durability, long commitMillis) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.commitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, commitMillis));
+        Files.createDirectories(directory);
+
+        List<Long> segments = segments();
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            long first = segments.get(segments.size() - 1);
+            Path path = segmentPath(first);
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long valid = countValidRecords(channel, first);
+            channel.truncate(HEADER_SIZE + valid * RECORD_SIZE);
+            channel.position(HEADER_SIZE + valid * RECORD_SIZE);
+            segment = channel;
+            segmentFirstRecord = first;
+            nextRecord = first + valid;
+        }
+        committedRecord = nextRecord;
+
+        committer = new Thread(this::commitLoop, "measurement-log");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    public void append(long timestamp, float temperature, float humidity, float pressure) {
+        long record;
+        lock.lock();
+        try {
+            ensureRoom(1);
+            put(timestamp, temperature, humidity, pressure);
+            record = nextRecord++;
+            if (durability == Durability.FSYNC_WAIT) {
+                commitNow = true;
+                commitWanted.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (durability == Durability.FSYNC_WAIT) {
+            awaitCommitted(record + 1);
+        }
+    }
+
+    // A batch shares one timestamp, one lock acquisition and, with FSYNC_WAIT, one wait
+    public void append(long timestamp, float[] temperatures, float[] humidities, float[] pressures, int count) {
+        append(null, timestamp, temperatures, humidities, pressures, count);
+    }
+
+    // Each record keeps its own timestamp
+    public void append(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures, int count) {
+        append(timestamps, 0, temperatures, humidities, pressures, count);
+    }
+
+    // timestamps null: every record gets timestamp
+    private void append(long[] timestamps, long timestamp, float[] temperatures, float[] humidities,
+                        float[] pressures, int count) {
+        long end;
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                ensureRoom(1);
+                put((timestamps != null) ? timestamps[i] : timestamp, temperatures[i], humidities[i], pressures[i]);
+                nextRecord++;
+            }
+            end = nextRecord;
+            if (durability == Durability.FSYNC_WAIT) {
+                commitNow = true;
+                commitWanted.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (durability == Durability.FSYNC_WAIT) {
+            awaitCommitted(end);
+        }
+    }
+
+    public long getNextRecord() {
+        lock.lock();
+        try {
+            return nextRecord;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Writes and fsyncs everything appended so far, whatever the durability
+    public void flush() throws IOException {
+        long end;
+        lock.lock();
+        try {
+            end = nextRecord;
+            commitNow = true;
+            commitWanted.signal();
+        } finally {
+            lock.unlock();
+        }
+        awaitCommitted(end);
+        synchronized (segmentLock) {
+            segment.force(false);
+        }
+    }
+
+    // Saves parts as the state after every record appended so far, then drops the segments replay no
+    // longer needs. Call it from the thread that appends, once the observers have applied those records.
+    public void checkpoint(Snapshottable... parts) throws IOException {
+        long record = getNextRecord();
+        byte[][] blobs = new byte[parts.length][];
+        for (int i = 0; i < parts.length; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            parts[i].writeSnapshot(out);
+            out.flush();
+            blobs[i] = bytes.toByteArray();
+        }
+        flush();
+
+        synchronized (segmentLock) {
+            long first;
+            lock.lock();
+            try {
+                first = committedRecord;
+            } finally {
+                lock.unlock();
+            }
+            if (first != segmentFirstRecord) {
+                segment.close();
+                openSegment(first);
+            }
+        }
+
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(record);
+            out.writeInt(blobs.length);
+            for (byte[] blob : blobs) {
+                out.writeInt(blob.length);
+                out.write(blob);
+            }
+            out.flush();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        // A segment is only needed if a later segment does not start at or before the snapshot
+        List<Long> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1) <= record) {
+                Files.delete(segmentPath(segments.get(i)));
+            }
+        }
+    }
+
+    // Restores target and parts from the last checkpoint (in the order checkpoint received them, target
+    // first) and replays the records after it into target, whose observers get every record on this
+    // thread. Call it before the log is attached to target.
+    // Returns the number of records replayed.
+    public long recover(WeatherData target, Snapshottable... parts) throws IOException {
+        long from = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION) {
+                    throw new IOException("Not a measurement snapshot: " + snapshot);
+                }
+                from = in.readLong();
+                int count = in.readInt();
+                if (count != parts.length + 1) {
+                    throw new IOException("Snapshot holds " + count + " parts, " + (parts.length + 1) + " given");
+                }
+                for (int i = 0; i < count; i++) {
+                    byte[] blob = new byte[in.readInt()];
+                    in.readFully(blob);
+                    Snapshottable part = (i == 0) ? target : parts[i - 1];
+                    part.readSnapshot(new DataInputStream(new ByteArrayInputStream(blob)));
+                }
+            }
+        }
+
+        long end = getNextRecord();
+        long replayed = 0;
+        long[] timestamps = new long[REPLAY_BATCH];
+        float[] temperatures = new float[REPLAY_BATCH];
+        float[] humidities = new float[REPLAY_BATCH];
+        float[] pressures = new float[REPLAY_BATCH];
+        int count = 0;
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * RECORD_SIZE);
+        for (long first : segments()) {
+            if (first >= end) {
+                break;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(first), StandardOpenOption.READ)) {
+                checkHeader(channel, first);
+                long record = first;
+                buffer.clear();
+                while (record < end && channel.read(buffer) > 0) {
+                    buffer.flip();
+                    while (buffer.remaining() >= RECORD_SIZE && record < end) {
+                        int offset = buffer.position();
+                        crc.reset();
+                        crc.update(buffer.array(), offset, RECORD_SIZE - 4);
+                        long timestamp = buffer.getLong();
+                        float temperature = buffer.getFloat();
+                        float humidity = buffer.getFloat();
+                        float pressure = buffer.getFloat();
+                        if (buffer.getInt() != (int) crc.getValue()) {
+                            throw new IOException("Corrupt record " + record + " in " + segmentPath(first));
+                        }
+                        if (record >= from) {
+                            timestamps[count] = timestamp;
+                            temperatures[count] = temperature;
+                            humidities[count] = humidity;
+                            pressures[count] = pressure;
+                            if (++count == REPLAY_BATCH) {
+                                target.replay(timestamps, temperatures, humidities, pressures, count);
+                                replayed += count;
+                                count = 0;
+                            }
+                        }
+                        record++;
+                    }
+                    buffer.compact();
+                }
+            }
+        }
+        if (count > 0) {
+            target.replay(timestamps, temperatures, humidities, pressures, count);
+            replayed += count;
+        }
+        return replayed;
+    }
+
+    // Commits what is buffered, fsyncs and stops the commit thread
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            commitWanted.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (segmentLock) {
+            segment.force(false);
+            segment.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Called with the lock held
+    private void ensureRoom(int records) {
+        while (filling.remaining() < records * RECORD_SIZE) {
+            checkOpen();
+            commitNow = true;
+            commitWanted.signal();
+            committed.awaitUninterruptibly();
+        }
+        checkOpen();
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Measurement log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Measurement log is closed");
+        }
+    }
+
+    // Called with the lock held; the CRC covers the 20 bytes before it
+    private void put(long timestamp, float temperature, float humidity, float pressure) {
+        int start = filling.position();
+        filling.putLong(timestamp).putFloat(temperature).putFloat(humidity).putFloat(pressure);
+        int end = filling.position();
+        appendCrc.reset();
+        filling.limit(end).position(start);
+        appendCrc.update(filling);
+        filling.limit(filling.capacity());
+        filling.putInt((int) appendCrc.getValue());
+    }
+
+    private void awaitCommitted(long end) {
+        lock.lock();
+        try {
+            while (committedRecord < end && failure == null) {
+                committed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Measurement log failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long end;
+            lock.lock();
+            try {
+                // Waits out the rest of the interval since the last commit, or a whole interval for the
+                // next record when the buffer is empty
+                while (!closed && !commitNow) {
+                    long wait = (filling.position() == 0)
+                            ? commitNanos : lastCommitNanos + commitNanos - System.nanoTime();
+                    if (wait <= 0) {
+                        break;
+                    }
+                    commitWanted.awaitNanos(wait);
+                }
+                commitNow = false;
+                if (filling.position() == 0) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = filling;
+                filling = writing;
+                writing = batch;
+                end = nextRecord;
+                lastCommitNanos = System.nanoTime();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            synchronized (segmentLock) {
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        segment.write(batch);
+                    }
+                    if (durability != Durability.WRITE_BEHIND) {
+                        segment.force(false);
+                    }
+                } catch (IOException e) {
+                    error = e;
+                }
+                batch.clear();
+                lock.lock();
+                try {
+                    if (error != null) {
+                        failure = error;
+                    } else {
+                        committedRecord = end;
+                    }
+                    committed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (error != null) {
+                return; // appenders and close() report the failure
+            }
+        }
+    }
+
+    private void openSegment(long first) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(first), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(SEGMENT_MAGIC).putInt(VERSION).putLong(first).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        segment = channel;
+        segmentFirstRecord = first;
+    }
+
+    // Records up to the first torn or corrupt one
+    private long countValidRecords(FileChannel channel, long first) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(SEGMENT_MAGIC).putInt(VERSION).putLong(first).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return 0;
+        }
+        checkHeader(channel, first);
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(1024 * RECORD_SIZE);
+        long valid = 0;
+        long position = HEADER_SIZE;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read < RECORD_SIZE) {
+                return valid;
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), RECORD_SIZE - 4);
+                buffer.position(buffer.position() + RECORD_SIZE - 4);
+                if (buffer.getInt() != (int) crc.getValue()) {
+                    return valid;
+                }
+                valid++;
+                position += RECORD_SIZE;
+            }
+        }
+    }
+
+    private void checkHeader(FileChannel channel, long first) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.position(0);
+        while (header.hasRemaining() && channel.read(header) > 0) {
+            // keep reading
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != SEGMENT_MAGIC || header.getInt() != VERSION
+                || header.getLong() != first) {
+            throw new IOException("Not a measurement log segment: " + segmentPath(first));
+        }
+    }
+
+    // First record numbers of the segment files, oldest first
+    private List<Long> segments() throws IOException {
+        List<Long> firsts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                firsts.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(firsts);
+        return firsts;
+    }
+
+    private Path segmentPath(long first) {
+        return directory.resolve(String.format("%020d%s", first, SEGMENT_SUFFIX));
+    }
+}
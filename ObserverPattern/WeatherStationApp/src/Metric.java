@@ -0,0 +1,5 @@
+public enum Metric {
+    TEMPERATURE,
+    HUMIDITY,
+    PRESSURE
+}
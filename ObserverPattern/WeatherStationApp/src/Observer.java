@@ -1,3 +1,18 @@
 public interface Observer {
     void update(float temperature, float humidity, float pressure);
+
+    // A batch of count samples, oldest first. The arrays are only valid during the call. Displays that can
+    // fold a whole batch at once override this; by default every sample is an ordinary update.
+    default void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        for (int i = 0; i < count; i++) {
+            update(temperatures[i], humidities[i], pressures[i]);
+        }
+    }
+
+    // A batch with the time each sample was taken, in epoch millis, e.g. replayed from a MeasurementLog.
+    // Displays that depend on time (time windows, trends) override this; by default the times are dropped.
+    default void updateBatch(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures,
+                             int count) {
+        updateBatch(temperatures, humidities, pressures, count);
+    }
 }
@@ -0,0 +1,151 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Thread-safe observer list. Writers swap in a modified copy with compare-and-set; readers get the current
+// array and iterate it without locking, so registering during a notification never disturbs it.
+public class ObserverRegistry {
+    private static final Observer[] EMPTY = new Observer[0];
+
+    private final AtomicReference<Observer[]> observers = new AtomicReference<>(EMPTY);
+    private final ReferenceQueue<Observer> collected = new ReferenceQueue<>(); // weak observers the GC cleared
+
+    public void add(Observer observer) {
+        Observer[] current;
+        Observer[] next;
+        do {
+            current = observers.get();
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = observer;
+        } while (!observers.compareAndSet(current, next));
+    }
+
+    // The registry does not keep the observer alive; once it is collected its entry is dropped
+    // Returns the entry that stands in for the observer
+    public Observer addWeak(Observer observer) {
+        Observer entry = new WeakObserver(observer, collected);
+        add(entry);
+        return entry;
+    }
+
+    // Removes the entry registered for observer, strongly or weakly, and returns it (null if none)
+    public Observer remove(Observer observer) {
+        Observer[] current;
+        Observer[] next;
+        Observer removed;
+        do {
+            current = observers.get();
+            int index = indexOf(current, observer);
+            if (index < 0) {
+                return null;
+            }
+            removed = current[index];
+            next = without(current, index);
+        } while (!observers.compareAndSet(current, next));
+        return removed;
+    }
+
+    // Drops every weak entry whose observer was collected; returns the dropped entries. Cheap when nothing
+    // was collected since the last call, so it can run on every notification.
+    public Observer[] purge() {
+        if (collected.poll() == null) {
+            return EMPTY;
+        }
+        while (collected.poll() != null) {
+            // one scan below handles them all
+        }
+        Observer[] current;
+        Observer[] next;
+        Observer[] cleared;
+        do {
+            current = observers.get();
+            int live = 0;
+            for (Observer entry : current) {
+                if (!isCleared(entry)) {
+                    live++;
+                }
+            }
+            if (live == current.length) {
+                return EMPTY;
+            }
+            next = new Observer[live];
+            cleared = new Observer[current.length - live];
+            int n = 0;
+            int c = 0;
+            for (Observer entry : current) {
+                if (isCleared(entry)) {
+                    cleared[c++] = entry;
+                } else {
+                    next[n++] = entry;
+                }
+            }
+        } while (!observers.compareAndSet(current, next));
+        return cleared;
+    }
+
+    // The array must not be modified; it is the registry's current state
+    public Observer[] snapshot() {
+        return observers.get();
+    }
+
+    public int size() {
+        return observers.get().length;
+    }
+
+    private static boolean isCleared(Observer entry) {
+        return entry instanceof WeakObserver && ((WeakObserver) entry).reference.get() == null;
+    }
+
+    private static int indexOf(Observer[] entries, Observer observer) {
+        for (int i = 0; i < entries.length; i++) {
+            Observer entry = entries[i];
+            if (entry == observer
+                    || (entry instanceof WeakObserver && ((WeakObserver) entry).reference.get() == observer)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Observer[] without(Observer[] entries, int index) {
+        Observer[] next = new Observer[entries.length - 1];
+        System.arraycopy(entries, 0, next, 0, index);
+        System.arraycopy(entries, index + 1, next, index, next.length - index);
+        return next;
+    }
+
+    // Forwards to the observer while it is still reachable from somewhere else
+    private static class WeakObserver implements Observer {
+        private final WeakReference<Observer> reference;
+
+        WeakObserver(Observer observer, ReferenceQueue<Observer> collected) {
+            this.reference = new WeakReference<>(observer, collected);
+        }
+
+        @Override
+        public void update(float temperature, float humidity, float pressure) {
+            Observer observer = reference.get();
+            if (observer != null) {
+                observer.update(temperature, humidity, pressure);
+            }
+        }
+
+        @Override
+        public void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+            Observer observer = reference.get();
+            if (observer != null) {
+                observer.updateBatch(temperatures, humidities, pressures, count);
+            }
+        }
+
+        @Override
+        public void updateBatch(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures,
+                                int count) {
+            Observer observer = reference.get();
+            if (observer != null) {
+                observer.updateBatch(timestamps, temperatures, humidities, pressures, count);
+            }
+        }
+    }
+}
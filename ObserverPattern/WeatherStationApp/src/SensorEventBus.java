@@ -0,0 +1,233 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Subject for any number of stations. Readings are routed by station and metric to the observers whose
+// TopicFilter matches. Stations are spread over partitions, one thread each, so readings of one station are
+// delivered in publish order while different stations run in parallel. An observer subscribed to stations
+// in several partitions can be called from several threads at once.
+public class SensorEventBus implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final int DRAIN_BATCH = 256;
+    private static final long FULL_WAIT_MILLIS = 10; // how often a publisher waiting for room checks the partition
+    private static final SensorObserver[] NONE = new SensorObserver[0];
+    private static final SensorReading STOP = new SensorReading("", Metric.TEMPERATURE, 0, 0);
+
+    private final Partition[] partitions;
+    private volatile Routes routes = new Routes();
+    private volatile boolean closed;
+
+    public SensorEventBus() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public SensorEventBus(int partitionCount, int queueCapacity) {
+        if (partitionCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Partitions and queue capacity must be positive");
+        }
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(queueCapacity, "sensor-bus-" + i);
+        }
+    }
+
+    public synchronized void subscribe(TopicFilter filter, SensorObserver observer) {
+        routes = routes.with(filter, observer);
+    }
+
+    public synchronized void unsubscribe(SensorObserver observer) {
+        routes = routes.without(observer);
+    }
+
+    // Blocks while the station's partition is full, so readings are never dropped or reordered. Throws
+    // IllegalStateException once the bus is closed; a reading published while close() runs may be lost.
+    public void publish(SensorReading reading) {
+        if (closed) {
+            throw new IllegalStateException("Bus is closed");
+        }
+        int hash = reading.getStationId().hashCode();
+        partitions[Math.floorMod(hash ^ (hash >>> 16), partitions.length)].put(reading);
+    }
+
+    public void publish(String stationId, Metric metric, long timestamp, double value) {
+        publish(new SensorReading(stationId, metric, timestamp, value));
+    }
+
+    // Delivers everything already published, then stops the partition threads
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Partition partition : partitions) {
+            partition.put(STOP);
+        }
+        for (Partition partition : partitions) {
+            partition.join();
+        }
+    }
+
+    private void deliver(SensorReading reading) {
+        for (SensorObserver observer : routes.lookup(reading.getStationId(), reading.getMetric())) {
+            try {
+                observer.onReading(reading);
+            } catch (RuntimeException e) {
+                // One failing observer must not stop delivery to the others
+                System.err.println("Observer " + observer + " failed on " + reading + ": " + e);
+            }
+        }
+    }
+
+    private class Partition implements Runnable {
+        private final BlockingQueue<SensorReading> queue;
+        private final Thread thread;
+
+        Partition(int capacity, String name) {
+            queue = new ArrayBlockingQueue<>(capacity);
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        // Waits for room only while the partition thread runs. A publisher that got past the closed check as
+        // close() stopped the thread would otherwise wait for good on a full queue nobody drains.
+        void put(SensorReading reading) {
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        if (queue.offer(reading, FULL_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                    if (!thread.isAlive()) {
+                        throw new IllegalStateException("Bus is closed");
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<SensorReading> batch = new ArrayList<>(DRAIN_BATCH);
+            try {
+                while (true) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, DRAIN_BATCH - 1);
+                    for (SensorReading reading : batch) {
+                        if (reading == STOP) {
+                            return;
+                        }
+                        deliver(reading);
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Immutable routing table: per metric, the observers of each named station plus those of every station.
+    // Subscribing copies it, so publishing threads read it without locking.
+    private static class Routes {
+        private final Map<Metric, Map<String, SensorObserver[]>> byStation;
+        private final Map<Metric, SensorObserver[]> anyStation;
+
+        Routes() {
+            this(new EnumMap<>(Metric.class), new EnumMap<>(Metric.class));
+        }
+
+        private Routes(Map<Metric, Map<String, SensorObserver[]>> byStation, Map<Metric, SensorObserver[]> anyStation) {
+            this.byStation = byStation;
+            this.anyStation = anyStation;
+        }
+
+        SensorObserver[] lookup(String stationId, Metric metric) {
+            Map<String, SensorObserver[]> stations = byStation.get(metric);
+            SensorObserver[] observers = (stations != null) ? stations.get(stationId) : null;
+            if (observers != null) {
+                return observers;
+            }
+            observers = anyStation.get(metric);
+            return (observers != null) ? observers : NONE;
+        }
+
+        // Station arrays already contain the every-station observers, so lookup is a single map get
+        Routes with(TopicFilter filter, SensorObserver observer) {
+            Map<Metric, Map<String, SensorObserver[]>> nextByStation = new EnumMap<>(byStation);
+            Map<Metric, SensorObserver[]> nextAny = new EnumMap<>(anyStation);
+            for (Metric metric : filter.getMetrics()) {
+                Map<String, SensorObserver[]> stations = new HashMap<>(byStation.getOrDefault(metric, Map.of()));
+                SensorObserver[] any = anyStation.getOrDefault(metric, NONE);
+                if (filter.isAllStations()) {
+                    nextAny.put(metric, append(any, observer));
+                    stations.replaceAll((stationId, observers) -> append(observers, observer));
+                } else {
+                    for (String stationId : filter.getStations()) {
+                        stations.put(stationId, append(stations.getOrDefault(stationId, any), observer));
+                    }
+                }
+                nextByStation.put(metric, stations);
+            }
+            return new Routes(nextByStation, nextAny);
+        }
+
+        Routes without(SensorObserver observer) {
+            Map<Metric, Map<String, SensorObserver[]>> nextByStation = new EnumMap<>(Metric.class);
+            Map<Metric, SensorObserver[]> nextAny = new EnumMap<>(Metric.class);
+            for (Map.Entry<Metric, Map<String, SensorObserver[]>> entry : byStation.entrySet()) {
+                Map<String, SensorObserver[]> stations = new HashMap<>();
+                for (Map.Entry<String, SensorObserver[]> station : entry.getValue().entrySet()) {
+                    SensorObserver[] observers = remove(station.getValue(), observer);
+                    if (observers.length > 0) {
+                        stations.put(station.getKey(), observers);
+                    }
+                }
+                nextByStation.put(entry.getKey(), stations);
+            }
+            for (Map.Entry<Metric, SensorObserver[]> entry : anyStation.entrySet()) {
+                nextAny.put(entry.getKey(), remove(entry.getValue(), observer));
+            }
+            return new Routes(nextByStation, nextAny);
+        }
+
+        private static SensorObserver[] append(SensorObserver[] observers, SensorObserver observer) {
+            SensorObserver[] next = Arrays.copyOf(observers, observers.length + 1);
+            next[observers.length] = observer;
+            return next;
+        }
+
+        private static SensorObserver[] remove(SensorObserver[] observers, SensorObserver observer) {
+            int kept = 0;
+            SensorObserver[] next = new SensorObserver[observers.length];
+            for (SensorObserver candidate : observers) {
+                if (candidate != observer) {
+                    next[kept++] = candidate;
+                }
+            }
+            return (kept == observers.length) ? observers : Arrays.copyOf(next, kept);
+        }
+    }
+}
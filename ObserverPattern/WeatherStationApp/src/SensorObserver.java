@@ -0,0 +1,3 @@
+public interface SensorObserver {
+    void onReading(SensorReading reading);
+}
@@ -0,0 +1,35 @@
+// One value from one sensor of one station
+public final class SensorReading {
+    private final String stationId;
+    private final Metric metric;
+    private final long timestamp;
+    private final double value;
+
+    public SensorReading(String stationId, Metric metric, long timestamp, double value) {
+        this.stationId = stationId;
+        this.metric = metric;
+        this.timestamp = timestamp;
+        this.value = value;
+    }
+
+    public String getStationId() {
+        return stationId;
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return stationId + " " + metric + "=" + value + " @" + timestamp;
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Average, min, max and percentiles over the most recent values, bounded by a sample count and/or an age.
+// Every add is O(1) amortized: the sum is kept running, min and max come from monotonic deques whose
+// fronts are the answers, and the histogram has each evicted value removed again.
+public class SlidingWindow implements Snapshottable {
+    private final int maxSamples;  // 0: no count limit
+    private final long windowMillis; // 0: no age limit
+
+    // Ring of the values in the window with their timestamps; sample i sits at i & mask. All rings have the
+    // same power-of-two length.
+    private float[] values = new float[16];
+    private long[] timestamps = new long[16];
+    private int mask = 15;
+    private long first; // oldest sample still in the window
+    private long next;  // number given to the next sample
+    private long newest = Long.MIN_VALUE; // latest timestamp added; the age limit is measured back from it
+    private double sum;
+
+    // Monotonic deques of sample numbers: values increase from the front of minQueue, decrease in maxQueue
+    private long[] minQueue = new long[16];
+    private long[] maxQueue = new long[16];
+    private int minHead;
+    private int minSize;
+    private int maxHead;
+    private int maxSize;
+
+    private final HistogramSketch sketch = new HistogramSketch();
+
+    public SlidingWindow(int maxSamples, long windowMillis) {
+        if (maxSamples < 0 || windowMillis < 0 || (maxSamples == 0 && windowMillis == 0)) {
+            throw new IllegalArgumentException("A window needs a sample count or an age limit");
+        }
+        this.maxSamples = maxSamples;
+        this.windowMillis = windowMillis;
+    }
+
+    public void add(long timestamp, float value) {
+        if (windowMillis > 0 && first < next && timestamp <= newest - windowMillis) {
+            return; // arrived late and is already older than the window
+        }
+        if (next - first == values.length) {
+            growRing();
+        }
+        int slot = (int) (next & mask);
+        values[slot] = value;
+        timestamps[slot] = timestamp;
+        sum += value;
+        sketch.add(value);
+
+        while (minSize > 0 && valueAt(minQueue[(minHead + minSize - 1) & mask]) >= value) {
+            minSize--;
+        }
+        minQueue[(minHead + minSize++) & mask] = next;
+        while (maxSize > 0 && valueAt(maxQueue[(maxHead + maxSize - 1) & mask]) <= value) {
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize++) & mask] = next;
+        next++;
+
+        // Timestamps are event times (replayed or from the sensors), so age is measured against the newest
+        // sample rather than the wall clock; an out-of-order sample does not move the window back
+        newest = Math.max(newest, timestamp);
+        expire(newest);
+    }
+
+    // Drops samples that fell out of an age-limited window as of now, in the same time base as the timestamps
+    public void expire(long now) {
+        while (first < next && ((maxSamples > 0 && next - first > maxSamples)
+                || (windowMillis > 0 && timestamps[(int) (first & mask)] <= now - windowMillis))) {
+            float value = valueAt(first);
+            sum -= value;
+            sketch.remove(value);
+            if (minSize > 0 && minQueue[minHead] == first) {
+                minHead = (minHead + 1) & mask;
+                minSize--;
+            }
+            if (maxSize > 0 && maxQueue[maxHead] == first) {
+                maxHead = (maxHead + 1) & mask;
+                maxSize--;
+            }
+            first++;
+        }
+        if (first == next) {
+            sum = 0; // drop the rounding error the running sum picked up
+        }
+    }
+
+    public int size() {
+        return (int) (next - first);
+    }
+
+    // NaN while the window is empty
+    public float getAverage() {
+        return (next > first) ? (float) (sum / (next - first)) : Float.NaN;
+    }
+
+    public float getMin() {
+        return (minSize > 0) ? valueAt(minQueue[minHead]) : Float.NaN;
+    }
+
+    public float getMax() {
+        return (maxSize > 0) ? valueAt(maxQueue[maxHead]) : Float.NaN;
+    }
+
+    // Within 1% of the exact value, and never outside the window's min and max
+    public float getPercentile(double percentile) {
+        float value = sketch.quantile(percentile / 100.0);
+        return Math.max(getMin(), Math.min(getMax(), value));
+    }
+
+    // The samples still in the window, oldest first
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeInt(size());
+        for (long i = first; i < next; i++) {
+            out.writeLong(timestamps[(int) (i & mask)]);
+            out.writeFloat(values[(int) (i & mask)]);
+        }
+    }
+
+    // Replaces the window's contents with the saved samples
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        while (first < next) {
+            sketch.remove(valueAt(first++));
+        }
+        sum = 0;
+        minSize = 0;
+        maxSize = 0;
+        newest = Long.MIN_VALUE;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long timestamp = in.readLong();
+            add(timestamp, in.readFloat());
+        }
+    }
+
+    private float valueAt(long sample) {
+        return values[(int) (sample & mask)];
+    }
+
+    // Rings are indexed by sample number, so they are re-laid out when they double
+    private void growRing() {
+        int capacity = values.length * 2;
+        float[] grownValues = new float[capacity];
+        long[] grownTimestamps = new long[capacity];
+        for (long i = first; i < next; i++) {
+            grownValues[(int) (i & (capacity - 1))] = values[(int) (i & mask)];
+            grownTimestamps[(int) (i & (capacity - 1))] = timestamps[(int) (i & mask)];
+        }
+        minQueue = unwrap(minQueue, minHead, minSize, capacity);
+        minHead = 0;
+        maxQueue = unwrap(maxQueue, maxHead, maxSize, capacity);
+        maxHead = 0;
+        values = grownValues;
+        timestamps = grownTimestamps;
+        mask = capacity - 1;
+    }
+
+    private long[] unwrap(long[] queue, int head, int size, int capacity) {
+        long[] grown = new long[capacity];
+        for (int i = 0; i < size; i++) {
+            grown[i] = queue[(head + i) & mask];
+        }
+        return grown;
+    }
+}
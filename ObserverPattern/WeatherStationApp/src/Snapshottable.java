@@ -0,0 +1,10 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// State saved in a MeasurementLog checkpoint and restored before the log tail is replayed
+public interface Snapshottable {
+    void writeSnapshot(DataOutput out) throws IOException;
+
+    void readSnapshot(DataInput in) throws IOException;
+}
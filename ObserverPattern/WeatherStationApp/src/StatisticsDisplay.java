@@ -1,17 +1,76 @@
-public class StatisticsDisplay implements Observer, DisplayElement {
-    private float maxTemp = 0.0f;
-    private float minTemp = 100.0f;
-    private float tempSum = 0.0f;
-    private int numReadings;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class StatisticsDisplay implements Observer, DisplayElement, Snapshottable {
+    public static final int DEFAULT_WINDOW_SAMPLES = 1000;
+
+    // Start outside any real reading so the first one always becomes both extremes
+    private float maxTemp = Float.NEGATIVE_INFINITY;
+    private float minTemp = Float.POSITIVE_INFINITY;
+    private double tempSum = 0.0; // a float sum stops moving after a few million readings
+    private long numReadings;
+    private final SlidingWindow window;
     private Subject weatherData;
+    private final DisplayRenderer.Slot slot; // null: display on every update
+    private final StringBuilder text = new StringBuilder(160);
 
     public StatisticsDisplay(Subject weatherData) {
+        this(weatherData, DEFAULT_WINDOW_SAMPLES, 0, null);
+    }
+
+    // Lazy mode: updates only mark the display dirty and the renderer draws it
+    public StatisticsDisplay(Subject weatherData, DisplayRenderer renderer) {
+        this(weatherData, DEFAULT_WINDOW_SAMPLES, 0, renderer);
+    }
+
+    // Rolling statistics over the last windowSamples readings and/or the last windowMillis (0 = no limit)
+    public StatisticsDisplay(Subject weatherData, int windowSamples, long windowMillis) {
+        this(weatherData, windowSamples, windowMillis, null);
+    }
+
+    public StatisticsDisplay(Subject weatherData, int windowSamples, long windowMillis, DisplayRenderer renderer) {
+        this.window = new SlidingWindow(windowSamples, windowMillis);
         this.weatherData = weatherData;
+        this.slot = (renderer != null) ? renderer.register(this) : null;
         weatherData.registerObserver(this);
     }
 
     @Override
-    public void update(float temperature, float humidity, float pressure) {
+    public synchronized void update(float temperature, float humidity, float pressure) {
+        add(System.currentTimeMillis(), temperature);
+        changed();
+    }
+
+    // Folds the whole batch in one pass and displays once
+    @Override
+    public synchronized void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            add(now, temperatures[i]);
+        }
+        changed();
+    }
+
+    // The window is aged by the samples' own times
+    @Override
+    public synchronized void updateBatch(long[] timestamps, float[] temperatures, float[] humidities,
+                                         float[] pressures, int count) {
+        for (int i = 0; i < count; i++) {
+            add(timestamps[i], temperatures[i]);
+        }
+        changed();
+    }
+
+    private void changed() {
+        if (slot != null) {
+            slot.markDirty();
+        } else {
+            display();
+        }
+    }
+
+    private void add(long timestamp, float temperature) {
         tempSum += temperature;
         numReadings++;
 
@@ -23,12 +82,45 @@ public class StatisticsDisplay implements Observer, DisplayElement {
             minTemp = temperature;
         }
 
-        display();
+        window.add(timestamp, temperature);
+    }
+
+    @Override
+    public synchronized void display() {
+        text.setLength(0);
+        render(text);
+        System.out.print(text);
+    }
+
+    @Override
+    public synchronized void render(StringBuilder out) {
+        if (numReadings == 0) {
+            out.append("Avg/Max/Min temperature = no readings yet\n");
+            return;
+        }
+        out.append("Avg/Max/Min temperature = ").append((float) (tempSum / numReadings))
+                .append('/').append(maxTemp).append('/').append(minTemp).append('\n');
+        out.append("Last ").append(window.size()).append(" readings: Avg/Max/Min = ").append(window.getAverage())
+                .append('/').append(window.getMax()).append('/').append(window.getMin())
+                .append(", p50/p95/p99 = ").append(window.getPercentile(50)).append('/')
+                .append(window.getPercentile(95)).append('/').append(window.getPercentile(99)).append('\n');
+    }
+
+    @Override
+    public synchronized void writeSnapshot(DataOutput out) throws IOException {
+        out.writeDouble(tempSum);
+        out.writeLong(numReadings);
+        out.writeFloat(maxTemp);
+        out.writeFloat(minTemp);
+        window.writeSnapshot(out);
     }
 
     @Override
-    public void display() {
-        System.out.println("Avg/Max/Min temperature = " + (tempSum / numReadings) +
-                           "/" + maxTemp + "/" + minTemp);
+    public synchronized void readSnapshot(DataInput in) throws IOException {
+        tempSum = in.readDouble();
+        numReadings = in.readLong();
+        maxTemp = in.readFloat();
+        minTemp = in.readFloat();
+        window.readSnapshot(in);
     }
 }
@@ -0,0 +1,47 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+// Which stations and metrics a SensorObserver wants. An empty station set means every station.
+public final class TopicFilter {
+    private final Set<String> stations;
+    private final Set<Metric> metrics;
+
+    private TopicFilter(Set<String> stations, Set<Metric> metrics) {
+        this.stations = stations;
+        this.metrics = metrics;
+    }
+
+    public static TopicFilter all() {
+        return new TopicFilter(Collections.emptySet(), EnumSet.allOf(Metric.class));
+    }
+
+    public static TopicFilter stations(String... stationIds) {
+        return new TopicFilter(Collections.unmodifiableSet(new HashSet<>(Arrays.asList(stationIds))),
+                EnumSet.allOf(Metric.class));
+    }
+
+    // Narrows this filter to the given metrics
+    public TopicFilter metrics(Metric first, Metric... rest) {
+        return new TopicFilter(stations, EnumSet.of(first, rest));
+    }
+
+    public boolean isAllStations() {
+        return stations.isEmpty();
+    }
+
+    public Set<String> getStations() {
+        return stations;
+    }
+
+    public Set<Metric> getMetrics() {
+        return Collections.unmodifiableSet(metrics);
+    }
+
+    @Override
+    public String toString() {
+        return (stations.isEmpty() ? "*" : stations.toString()) + " " + metrics;
+    }
+}
@@ -0,0 +1,519 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Micro benchmarks for WeatherData. Run with: java WeatherBenchmark [measurements]
+public class WeatherBenchmark {
+    private static volatile long sink;
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int measurements = (args.length > 0) ? Integer.parseInt(args[0]) : 20_000;
+
+        System.out.println("== setMeasurements latency, observers that each spend ~20 us per update ==");
+        System.out.printf("%-28s %10s %12s %12s %12s%n", "mode", "observers", "avg ns", "max ns", "dropped");
+        for (int observers : new int[]{1, 10, 100}) {
+            // Modes that wait for the observers get fewer measurements so the run stays short
+            int paced = Math.min(measurements, 200_000 / observers);
+            ingestion("sync", null, observers, paced);
+            for (AsyncDispatcher.Backpressure backpressure : AsyncDispatcher.Backpressure.values()) {
+                boolean waits = backpressure == AsyncDispatcher.Backpressure.BLOCK;
+                ingestion("async " + backpressure, backpressure, observers, waits ? paced : measurements);
+            }
+        }
+
+        System.out.println();
+        System.out.println("== Registry contention: notify 5000 observers while other threads subscribe/unsubscribe ==");
+        System.out.printf("%-14s %14s %16s %14s %8s%n", "churn threads", "notifies/s", "updates/s", "churn ops/s",
+                "errors");
+        for (int churners : new int[]{0, 1, 4}) {
+            contention(5000, churners, 1000);
+        }
+
+        System.out.println();
+        System.out.println("== Weak subscriptions: abandoned displays ==");
+        weak(10_000);
+
+        System.out.println();
+        System.out.println("== High-rate ingestion: 2M samples, 100 folding observers, 1000 samples per tick ==");
+        System.out.printf("%-28s %14s %16s%n", "mode", "samples/s", "observer calls");
+        highRate("per-sample setMeasurements", null, 2_000_000, 1000);
+        highRate("batch setMeasurements", null, 2_000_000, -1000);
+        for (CoalescingIngestor.Mode mode : CoalescingIngestor.Mode.values()) {
+            highRate("ingestor " + mode, mode, 2_000_000, 1000);
+        }
+
+        System.out.println();
+        System.out.println("== MeasurementHistory: 10M samples at 1 kHz, 5M retained ==");
+        history(10_000_000, 5_000_000);
+
+        System.out.println();
+        System.out.println("== SlidingWindow: 10M readings ==");
+        window("last 10000 readings", new SlidingWindow(10_000, 0), 10_000_000);
+        window("last 60 s at 1 kHz", new SlidingWindow(0, 60_000), 10_000_000);
+
+        System.out.println();
+        System.out.println("== SensorEventBus: 1000 stations x 10 observers each, 3M readings ==");
+        System.out.printf("%-12s %14s %16s%n", "partitions", "readings/s", "deliveries/s");
+        for (int partitions : new int[]{1, Runtime.getRuntime().availableProcessors(), 4}) {
+            bus(partitions, 1000, 10, 3_000_000);
+        }
+
+        System.out.println();
+        System.out.println("== Rendering: 1M measurements, the three displays, output discarded ==");
+        System.out.printf("%-24s %14s %10s%n", "mode", "updates/s", "frames");
+        rendering(false, 1_000_000);
+        rendering(true, 1_000_000);
+
+        System.out.println();
+        System.out.println("== MeasurementLog: 5M records, 10 ms commits ==");
+        System.out.printf("%-36s %14s%n", "mode", "records/s");
+        for (MeasurementLog.Durability durability : new MeasurementLog.Durability[]{
+                MeasurementLog.Durability.WRITE_BEHIND, MeasurementLog.Durability.FSYNC_BATCH}) {
+            logAppend(durability, 1, 5_000_000);
+            logAppend(durability, 1000, 5_000_000);
+        }
+        for (int threads : new int[]{1, 16}) {
+            groupCommit(threads, 4000);
+        }
+        logReplay(5_000_000);
+
+        System.out.println();
+        System.out.println("== ForecastEngine: 100 stations at 10 Hz, noisy pressure, 1 in 10 readings up to 5 s late ==");
+        System.out.printf("%-20s %14s %18s%n", "window", "readings/s", "forecast changes");
+        forecast(60_000, 10_000_000);
+        forecast(3 * 60 * 60 * 1000L, 10_000_000);
+    }
+
+    private static void ingestion(String mode, AsyncDispatcher.Backpressure backpressure, int observers,
+                                  int measurements) throws InterruptedException {
+        AsyncDispatcher dispatcher = (backpressure != null)
+                ? new AsyncDispatcher(AsyncDispatcher.DEFAULT_CAPACITY, backpressure) : null;
+        WeatherData weatherData = new WeatherData(dispatcher);
+        for (int i = 0; i < observers; i++) {
+            weatherData.registerObserver(new SpinningDisplay(20_000));
+        }
+        long total = 0;
+        long max = 0;
+        for (int i = 0; i < measurements; i++) {
+            long start = System.nanoTime();
+            weatherData.setMeasurements(20.0f + (i % 10), 60.0f, 1013.0f);
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            max = Math.max(max, elapsed);
+        }
+        long dropped = 0;
+        if (dispatcher != null) {
+            dispatcher.awaitIdle(1, TimeUnit.MINUTES);
+            dropped = dispatcher.getDropped();
+            dispatcher.close();
+        }
+        System.out.printf("%-28s %10d %12d %12d %12d%n", mode, observers, total / measurements, max, dropped);
+    }
+
+    private static void contention(int observers, int churners, long millis) throws InterruptedException {
+        WeatherData weatherData = new WeatherData();
+        AtomicLong updates = new AtomicLong();
+        for (int i = 0; i < observers; i++) {
+            weatherData.registerObserver(new CountingDisplay(updates));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong churn = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < churners; i++) {
+            Thread thread = new Thread(() -> {
+                while (running.get()) {
+                    Observer display = new CountingDisplay(updates);
+                    weatherData.registerObserver(display);
+                    weatherData.removeObserver(display);
+                    churn.addAndGet(2);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        long notifies = 0;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < end) {
+            try {
+                weatherData.setMeasurements(20.0f, 60.0f, 1013.0f);
+            } catch (RuntimeException e) {
+                errors.incrementAndGet(); // e.g. ConcurrentModificationException with a plain list
+            }
+            notifies++;
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-14d %14.0f %16.0f %14.0f %8d%n", churners, notifies / seconds, updates.get() / seconds,
+                churn.get() / seconds, errors.get());
+    }
+
+    // tick < 0 feeds WeatherData batches of -tick samples directly
+    private static void highRate(String label, CoalescingIngestor.Mode mode, int samples, int tick) {
+        WeatherData weatherData = new WeatherData();
+        AtomicLong calls = new AtomicLong();
+        for (int i = 0; i < 100; i++) {
+            weatherData.registerObserver(new FoldingDisplay(calls));
+        }
+        CoalescingIngestor ingestor = (mode != null) ? new CoalescingIngestor(weatherData, mode) : null;
+        int batchSize = Math.abs(tick);
+        float[] temperatures = new float[batchSize];
+        float[] humidities = new float[batchSize];
+        float[] pressures = new float[batchSize];
+        long start = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            float temperature = 20.0f + (i % 10);
+            if (ingestor != null) {
+                ingestor.add(temperature, 60.0f, 1013.0f);
+                if ((i + 1) % tick == 0) {
+                    ingestor.tick();
+                }
+            } else if (tick > 0) {
+                weatherData.setMeasurements(temperature, 60.0f, 1013.0f);
+            } else {
+                int slot = i % batchSize;
+                temperatures[slot] = temperature;
+                humidities[slot] = 60.0f;
+                pressures[slot] = 1013.0f;
+                if (slot == batchSize - 1) {
+                    weatherData.setMeasurements(temperatures, humidities, pressures, batchSize);
+                }
+            }
+        }
+        if (ingestor != null) {
+            ingestor.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-28s %14.0f %16d%n", label, samples / seconds, calls.get());
+    }
+
+    private static void history(int samples, int retained) {
+        MeasurementHistory history = new MeasurementHistory(retained);
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            history.append(i, 20.0f + (i % 10), 60.0f, 1013.0f); // one sample per millisecond
+        }
+        double appendSeconds = (System.nanoTime() - start) / 1e9;
+        System.gc();
+        long heapBytes = usedHeap() - heapBefore;
+        System.out.printf("append          %12.0f samples/s%n", samples / appendSeconds);
+        System.out.printf("retained        %12d samples, %.1f bytes/sample on the heap (%.1f in the chunks)%n",
+                history.size(), (double) heapBytes / history.size(), (double) history.memoryBytes() / history.size());
+
+        Random random = new Random(7);
+        int queries = 100_000;
+        long found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            long from = samples - retained + random.nextInt(retained);
+            found += history.count(from, from + 60_000);
+        }
+        System.out.printf("count (1 min)   %12.0f ns/query%n", (System.nanoTime() - start) / (double) queries);
+        start = System.nanoTime();
+        double average = history.averageTemperature(samples - 3_600_000, samples);
+        System.out.printf("average (1 h)   %12.2f ms over %d samples%n", (System.nanoTime() - start) / 1e6,
+                history.count(samples - 3_600_000, samples));
+        sink = found + (long) average;
+    }
+
+    private static void window(String label, SlidingWindow window, int readings) {
+        Random random = new Random(11);
+        float[] temperatures = new float[1 << 16];
+        for (int i = 0; i < temperatures.length; i++) {
+            temperatures[i] = (float) (20.0 + 8.0 * random.nextGaussian());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            window.add(i, temperatures[i & (temperatures.length - 1)]); // one reading per millisecond
+        }
+        double addNanos = (System.nanoTime() - start) / (double) readings;
+        int queries = 10_000;
+        float percentiles = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            percentiles += window.getPercentile(50) + window.getPercentile(95) + window.getPercentile(99);
+        }
+        double queryNanos = (System.nanoTime() - start) / (double) queries;
+        System.out.printf("%-22s %8.1f ns/add   %8.0f ns for p50+p95+p99   window %d, min/avg/max %.1f/%.1f/%.1f%n",
+                label, addNanos, queryNanos, window.size(), window.getMin(), window.getAverage(), window.getMax());
+        sink = (long) percentiles;
+    }
+
+    private static void bus(int partitions, int stations, int observersPerStation, int readings) {
+        SensorEventBus bus = new SensorEventBus(partitions, SensorEventBus.DEFAULT_QUEUE_CAPACITY);
+        String[] stationIds = new String[stations];
+        List<StationCounter> counters = new ArrayList<>();
+        for (int s = 0; s < stations; s++) {
+            stationIds[s] = "station-" + s;
+            for (int o = 0; o < observersPerStation; o++) {
+                StationCounter counter = new StationCounter();
+                // Half of the observers only want temperature
+                TopicFilter filter = TopicFilter.stations(stationIds[s]);
+                bus.subscribe((o % 2 == 0) ? filter : filter.metrics(Metric.TEMPERATURE), counter);
+                counters.add(counter);
+            }
+        }
+        Metric[] metrics = Metric.values();
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            bus.publish(stationIds[i % stations], metrics[(i / stations) % metrics.length], i, 20.0);
+        }
+        bus.close(); // returns once every reading is delivered
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long deliveries = 0;
+        for (StationCounter counter : counters) {
+            deliveries += counter.count;
+        }
+        System.out.printf("%-12d %14.0f %16.0f%n", partitions, readings / seconds, deliveries / seconds);
+    }
+
+    private static void rendering(boolean lazy, int measurements) {
+        PrintStream console = System.out;
+        DisplayRenderer renderer = lazy ? new DisplayRenderer(Writer.nullWriter(), 16) : null; // ~60 frames/s
+        WeatherData weatherData = new WeatherData();
+        new CurrentConditionsDisplay(weatherData, renderer);
+        new StatisticsDisplay(weatherData, renderer);
+        new ForecastDisplay(weatherData, renderer);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < measurements; i++) {
+                weatherData.setMeasurements(20.0f + (i % 10), 60.0f, 1013.0f + (i % 3));
+            }
+            if (renderer != null) {
+                renderer.close();
+            }
+        } finally {
+            System.setOut(console);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-24s %14.0f %10s%n", lazy ? "lazy, 16 ms frames" : "display on every update",
+                measurements / seconds, lazy ? String.valueOf(renderer.getFrames()) : "-");
+    }
+
+    // Appends alone or in batches of batch, timed until close() has written and fsynced everything
+    private static void logAppend(MeasurementLog.Durability durability, int batch, int records) throws IOException {
+        Path directory = Files.createTempDirectory("measurement-log");
+        float[] temperatures = new float[batch];
+        float[] humidities = new float[batch];
+        float[] pressures = new float[batch];
+        for (int i = 0; i < batch; i++) {
+            temperatures[i] = 20.0f + (i % 10);
+            humidities[i] = 60.0f;
+            pressures[i] = 1013.0f + (i % 3);
+        }
+        long start = System.nanoTime();
+        try (MeasurementLog log = new MeasurementLog(directory, durability, MeasurementLog.DEFAULT_COMMIT_MILLIS)) {
+            for (int i = 0; i < records; i += batch) {
+                if (batch == 1) {
+                    log.append(i, 20.0f + (i % 10), 60.0f, 1013.0f + (i % 3));
+                } else {
+                    log.append(i, temperatures, humidities, pressures, batch);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-36s %14.0f%n", durability + (batch == 1 ? ", single" : ", batches of " + batch),
+                records / seconds);
+        delete(directory);
+    }
+
+    // Every append waits for its fsync; concurrent appenders share one
+    private static void groupCommit(int threads, int records) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("measurement-log");
+        long start = System.nanoTime();
+        try (MeasurementLog log = new MeasurementLog(directory, MeasurementLog.Durability.FSYNC_WAIT,
+                MeasurementLog.DEFAULT_COMMIT_MILLIS)) {
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread appender = new Thread(() -> {
+                    for (int i = 0; i < records / threads; i++) {
+                        log.append(i, 20.0f, 60.0f, 1013.0f);
+                    }
+                });
+                appender.start();
+                appenders.add(appender);
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-36s %14.0f%n", "FSYNC_WAIT, " + threads + " appender thread(s)", records / seconds);
+        delete(directory);
+    }
+
+    // Recovery: replays the whole log into WeatherData and the three displays
+    private static void logReplay(int records) throws IOException {
+        Path directory = Files.createTempDirectory("measurement-log");
+        try (MeasurementLog log = new MeasurementLog(directory, MeasurementLog.Durability.WRITE_BEHIND,
+                MeasurementLog.DEFAULT_COMMIT_MILLIS)) {
+            for (int i = 0; i < records; i++) {
+                log.append(i, 20.0f + (i % 10), 60.0f, 1013.0f + (i % 3));
+            }
+        }
+        long start = System.nanoTime();
+        long replayed;
+        try (MeasurementLog log = new MeasurementLog(directory, MeasurementLog.Durability.WRITE_BEHIND,
+                MeasurementLog.DEFAULT_COMMIT_MILLIS)) {
+            DisplayRenderer renderer = new DisplayRenderer(Writer.nullWriter(), 0);
+            WeatherData weatherData = new WeatherData();
+            StatisticsDisplay statistics = new StatisticsDisplay(weatherData, renderer);
+            CurrentConditionsDisplay conditions = new CurrentConditionsDisplay(weatherData, renderer);
+            ForecastDisplay forecast = new ForecastDisplay(weatherData, renderer);
+            replayed = log.recover(weatherData, statistics, conditions, forecast);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-36s %14.0f%n", "replay into the three displays", replayed / seconds);
+        delete(directory);
+    }
+
+    // Forecast changes are counted over all stations; comparing the last two pressures changes on about
+    // every other reading
+    private static void forecast(long windowMillis, int readings) {
+        ForecastEngine engine = new ForecastEngine(windowMillis, ForecastEngine.DEFAULT_MAX_SAMPLES,
+                ForecastEngine.DEFAULT_ENTER_SLOPE, ForecastEngine.DEFAULT_EXIT_SLOPE);
+        int stations = 100;
+        String[] stationIds = new String[stations];
+        ForecastEngine.Forecast[] last = new ForecastEngine.Forecast[stations];
+        for (int i = 0; i < stations; i++) {
+            stationIds[i] = "station-" + i;
+        }
+        Random random = new Random(42);
+        double[] noise = new double[4096];
+        for (int i = 0; i < noise.length; i++) {
+            noise[i] = random.nextGaussian() * 0.3;
+        }
+        long changes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < readings; i++) {
+            int station = i % stations;
+            long timestamp = (i / stations) * 100L;
+            if (i % 10 == 0) {
+                timestamp -= (i * 31L) % 5000;
+            }
+            // A slow swing of +-2 hPa over ~3 hours of event time
+            double pressure = 1013.0 + 2.0 * Math.sin(timestamp / 1_800_000.0) + noise[i & 4095];
+            ForecastEngine.Forecast forecast = engine.add(stationIds[station], timestamp, pressure);
+            if (last[station] != null && forecast != last[station]) {
+                changes++;
+            }
+            last[station] = forecast;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-20s %14.0f %18d%n", (windowMillis / 60_000) + " min", readings / seconds, changes);
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void weak(int observers) throws InterruptedException {
+        WeatherData weatherData = new WeatherData();
+        AtomicLong updates = new AtomicLong();
+        Observer kept = new CountingDisplay(updates);
+        weatherData.registerWeakObserver(kept);
+        for (int i = 0; i < observers; i++) {
+            weatherData.registerWeakObserver(new CountingDisplay(updates)); // nothing else references these
+        }
+        int before = weatherData.getObserverCount();
+        System.gc();
+        Thread.sleep(100);
+        weatherData.setMeasurements(20.0f, 60.0f, 1013.0f);
+        System.out.printf("registered %d, after GC and one notification %d, updates delivered %d%n",
+                before, weatherData.getObserverCount(), updates.get());
+        sink = kept.hashCode();
+    }
+
+    // Busy work standing in for a display that formats and prints
+    private static class SpinningDisplay implements Observer {
+        private final long nanos;
+
+        SpinningDisplay(long nanos) {
+            this.nanos = nanos;
+        }
+
+        @Override
+        public void update(float temperature, float humidity, float pressure) {
+            long end = System.nanoTime() + nanos;
+            long x = 0;
+            while (System.nanoTime() < end) {
+                x++;
+            }
+            sink = x;
+        }
+    }
+
+    // Keeps a running sum and folds batches in one call, like StatisticsDisplay
+    private static class FoldingDisplay implements Observer {
+        private final AtomicLong calls;
+        private double sum;
+
+        FoldingDisplay(AtomicLong calls) {
+            this.calls = calls;
+        }
+
+        @Override
+        public void update(float temperature, float humidity, float pressure) {
+            sum += temperature;
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public void updateBatch(float[] temperatures, float[] humidities, float[] pressures, int count) {
+            for (int i = 0; i < count; i++) {
+                sum += temperatures[i];
+            }
+            calls.incrementAndGet();
+        }
+    }
+
+    // Only ever called from its station's partition thread
+    private static class StationCounter implements SensorObserver {
+        private long count;
+
+        @Override
+        public void onReading(SensorReading reading) {
+            count++;
+        }
+    }
+
+    private static class CountingDisplay implements Observer {
+        private final AtomicLong updates;
+
+        CountingDisplay(AtomicLong updates) {
+            this.updates = updates;
+        }
+
+        @Override
+        public void update(float temperature, float humidity, float pressure) {
+            updates.incrementAndGet();
+        }
+    }
+}
@@ -1,28 +1,91 @@
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
-public class WeatherData implements Subject {
-    private ArrayList<Observer> observers;
+public class WeatherData implements Subject, Snapshottable {
+    private final ObserverRegistry observers = new ObserverRegistry();
     private float temperature;
     private float humidity;
     private float pressure;
+    private final AsyncDispatcher dispatcher; // null: observers are updated on the caller's thread
+    private final MeasurementHistory history; // null: no history is kept
+    private MeasurementLog log; // null: measurements are not logged
+    private long checkpointEvery;
+    private long nextCheckpoint;
+    private Snapshottable[] checkpointParts;
 
     public WeatherData() {
-        observers = new ArrayList<>();
+        this(null);
     }
 
+    // Async mode: setMeasurements only enqueues, each observer is updated from its own mailbox
+    public WeatherData(AsyncDispatcher dispatcher) {
+        this(dispatcher, null);
+    }
+
+    // Every measurement is also appended to history, stamped with the time it arrived
+    public WeatherData(AsyncDispatcher dispatcher, MeasurementHistory history) {
+        this.dispatcher = dispatcher;
+        this.history = history;
+    }
+
+    public MeasurementHistory getHistory() {
+        return history;
+    }
+
+    // Appends every measurement to log before observers see it. With checkpointEvery > 0, this and parts
+    // are checkpointed every checkpointEvery records, which needs the observers updated synchronously.
+    // Recover from the log first, with the same parts in the same order.
+    public void setLog(MeasurementLog log, long checkpointEvery, Snapshottable... parts) {
+        if (checkpointEvery > 0 && dispatcher != null) {
+            throw new IllegalStateException("Checkpoints need observers updated on the caller's thread");
+        }
+        this.log = log;
+        this.checkpointEvery = checkpointEvery;
+        this.checkpointParts = new Snapshottable[parts.length + 1];
+        this.checkpointParts[0] = this; // recover() restores the target first
+        System.arraycopy(parts, 0, checkpointParts, 1, parts.length);
+        this.nextCheckpoint = (log != null) ? log.getNextRecord() + checkpointEvery : 0;
+    }
+
+    // Safe from any thread, including from inside an update()
     @Override
     public void registerObserver(Observer o) {
         observers.add(o);
+        if (dispatcher != null) {
+            dispatcher.add(o);
+        }
+    }
+
+    // Registers without keeping the observer reachable, so an abandoned display is dropped once collected
+    public void registerWeakObserver(Observer o) {
+        Observer entry = observers.addWeak(o);
+        if (dispatcher != null) {
+            dispatcher.add(entry);
+        }
     }
 
     @Override
     public void removeObserver(Observer o) {
-        observers.remove(o);
+        Observer entry = observers.remove(o);
+        if (entry != null && dispatcher != null) {
+            dispatcher.remove(entry);
+        }
+    }
+
+    public int getObserverCount() {
+        return observers.size();
     }
 
     @Override
     public void notifyObservers() {
-        for (Observer observer : observers) {
+        Observer[] snapshot = liveObservers();
+        if (dispatcher != null) {
+            dispatcher.dispatch(snapshot, temperature, humidity, pressure);
+            return;
+        }
+        for (Observer observer : snapshot) {
             observer.update(temperature, humidity, pressure);
         }
     }
@@ -31,6 +94,131 @@ public class WeatherData implements Subject {
         this.temperature = temperature;
         this.humidity = humidity;
         this.pressure = pressure;
+        if (log != null) {
+            log.append(System.currentTimeMillis(), temperature, humidity, pressure);
+        }
+        if (history != null) {
+            history.append(temperature, humidity, pressure);
+        }
         notifyObservers();
+        checkpointIfDue();
+    }
+
+    // Ingests count samples, oldest first, with one notification per observer instead of one per sample.
+    // The latest sample becomes the current measurement.
+    public void setMeasurements(float[] temperatures, float[] humidities, float[] pressures, int count) {
+        if (count > temperatures.length || count > humidities.length || count > pressures.length) {
+            throw new IllegalArgumentException("Batch of " + count + " does not fit the arrays");
+        }
+        if (count == 0) {
+            return;
+        }
+        this.temperature = temperatures[count - 1];
+        this.humidity = humidities[count - 1];
+        this.pressure = pressures[count - 1];
+        if (log != null) {
+            log.append(System.currentTimeMillis(), temperatures, humidities, pressures, count);
+        }
+        if (history != null) {
+            history.append(temperatures, humidities, pressures, count);
+        }
+        notifyBatch(null, temperatures, humidities, pressures, count);
+        checkpointIfDue();
+    }
+
+    // Like the batch above, with the time each sample was taken (epoch millis, oldest first). Observers that
+    // depend on time, such as a ForecastDisplay's trend, get those times instead of the arrival time.
+    public void setMeasurements(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures,
+                                int count) {
+        if (count > timestamps.length || count > temperatures.length || count > humidities.length
+                || count > pressures.length) {
+            throw new IllegalArgumentException("Batch of " + count + " does not fit the arrays");
+        }
+        if (count == 0) {
+            return;
+        }
+        this.temperature = temperatures[count - 1];
+        this.humidity = humidities[count - 1];
+        this.pressure = pressures[count - 1];
+        if (log != null) {
+            log.append(timestamps, temperatures, humidities, pressures, count);
+        }
+        if (history != null) {
+            history.append(timestamps, temperatures, humidities, pressures, count);
+        }
+        notifyBatch(timestamps, temperatures, humidities, pressures, count);
+        checkpointIfDue();
+    }
+
+    // Called by MeasurementLog.recover(): like a batch of setMeasurements, but keeps the logged timestamps
+    // and does not log the records again. Records go straight to the observers, even with a dispatcher: a
+    // DROP_OLDEST or COALESCE_LATEST mailbox would throw most of the log away.
+    void replay(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures, int count) {
+        this.temperature = temperatures[count - 1];
+        this.humidity = humidities[count - 1];
+        this.pressure = pressures[count - 1];
+        if (history != null) {
+            history.append(timestamps, temperatures, humidities, pressures, count);
+        }
+        for (Observer observer : liveObservers()) {
+            observer.updateBatch(timestamps, temperatures, humidities, pressures, count);
+        }
+    }
+
+    @Override
+    public void writeSnapshot(DataOutput out) throws IOException {
+        out.writeFloat(temperature);
+        out.writeFloat(humidity);
+        out.writeFloat(pressure);
+    }
+
+    @Override
+    public void readSnapshot(DataInput in) throws IOException {
+        temperature = in.readFloat();
+        humidity = in.readFloat();
+        pressure = in.readFloat();
+    }
+
+    // timestamps null: the samples carry no times of their own
+    private void notifyBatch(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures,
+                             int count) {
+        Observer[] snapshot = liveObservers();
+        if (dispatcher != null) {
+            if (timestamps != null) {
+                dispatcher.dispatch(snapshot, timestamps, temperatures, humidities, pressures, count);
+            } else {
+                dispatcher.dispatch(snapshot, temperatures, humidities, pressures, count);
+            }
+            return;
+        }
+        for (Observer observer : snapshot) {
+            if (timestamps != null) {
+                observer.updateBatch(timestamps, temperatures, humidities, pressures, count);
+            } else {
+                observer.updateBatch(temperatures, humidities, pressures, count);
+            }
+        }
+    }
+
+    private void checkpointIfDue() {
+        if (checkpointEvery <= 0 || log.getNextRecord() < nextCheckpoint) {
+            return;
+        }
+        try {
+            log.checkpoint(checkpointParts);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint failed", e);
+        }
+        nextCheckpoint = log.getNextRecord() + checkpointEvery;
+    }
+
+    // Drops weak observers that were collected, then returns the current observers
+    private Observer[] liveObservers() {
+        for (Observer cleared : observers.purge()) {
+            if (dispatcher != null) {
+                dispatcher.remove(cleared);
+            }
+        }
+        return observers.snapshot();
     }
 }
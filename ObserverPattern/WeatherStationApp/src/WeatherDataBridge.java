@@ -0,0 +1,31 @@
+// Publishes a WeatherData station's measurements on a SensorEventBus, one reading per metric
+public class WeatherDataBridge implements Observer {
+    private final SensorEventBus bus;
+    private final String stationId;
+
+    public WeatherDataBridge(WeatherData weatherData, SensorEventBus bus, String stationId) {
+        this.bus = bus;
+        this.stationId = stationId;
+        weatherData.registerObserver(this);
+    }
+
+    @Override
+    public void update(float temperature, float humidity, float pressure) {
+        long now = System.currentTimeMillis();
+        bus.publish(stationId, Metric.TEMPERATURE, now, temperature);
+        bus.publish(stationId, Metric.HUMIDITY, now, humidity);
+        bus.publish(stationId, Metric.PRESSURE, now, pressure);
+    }
+
+    // Readings carry the samples' own times, so event-time subscribers such as ForecastEngine see when each
+    // was taken
+    @Override
+    public void updateBatch(long[] timestamps, float[] temperatures, float[] humidities, float[] pressures,
+                            int count) {
+        for (int i = 0; i < count; i++) {
+            bus.publish(stationId, Metric.TEMPERATURE, timestamps[i], temperatures[i]);
+            bus.publish(stationId, Metric.HUMIDITY, timestamps[i], humidities[i]);
+            bus.publish(stationId, Metric.PRESSURE, timestamps[i], pressures[i]);
+        }
+    }
+}
@@ -1,16 +1,50 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
 public class WeatherStation {
-    public static void main(String[] args) {
-        WeatherData weatherData = new WeatherData();
+    // Options: "async" updates the displays through an AsyncDispatcher instead of on the main thread,
+    // "lazy" only marks them dirty and draws them through a DisplayRenderer, "durable" logs measurements to
+    // the weather-log directory and replays them on the next start, "trend" forecasts from the pressure trend
+    // of the last three hours
+    public static void main(String[] args) throws IOException {
+        List<String> options = Arrays.asList(args);
+        AsyncDispatcher dispatcher = options.contains("async") ? new AsyncDispatcher() : null;
+        DisplayRenderer renderer = options.contains("lazy") ? new DisplayRenderer() : null;
+        WeatherData weatherData = new WeatherData(dispatcher);
 
-        CurrentConditionsDisplay currentDisplay = new CurrentConditionsDisplay(weatherData);
+        CurrentConditionsDisplay currentDisplay = new CurrentConditionsDisplay(weatherData, renderer);
         // currentDisplay.display();
-        StatisticsDisplay statisticsDisplay = new StatisticsDisplay(weatherData);
+        StatisticsDisplay statisticsDisplay = new StatisticsDisplay(weatherData, renderer);
         // statisticsDisplay.display();
-        ForecastDisplay forecastDisplay = new ForecastDisplay(weatherData);
+        ForecastEngine engine = options.contains("trend") ? new ForecastEngine() : null;
+        ForecastDisplay forecastDisplay = new ForecastDisplay(weatherData, engine, renderer);
+
+        MeasurementLog log = null;
+        if (options.contains("durable")) {
+            log = new MeasurementLog(Paths.get("weather-log"), MeasurementLog.Durability.FSYNC_BATCH,
+                    MeasurementLog.DEFAULT_COMMIT_MILLIS);
+            log.recover(weatherData, statisticsDisplay, currentDisplay, forecastDisplay);
+            // recover() updates the displays directly, async or not. Checkpoints need synchronous updates, so
+            // in async mode there are none and every start replays the whole log.
+            weatherData.setLog(log, (dispatcher == null) ? 100_000 : 0, statisticsDisplay, currentDisplay,
+                    forecastDisplay);
+        }
 
         // Simulating new weather measurements
         weatherData.setMeasurements(26.6f, 65.0f, 1013.1f);
         // weatherData.setMeasurements(28.0f, 70.0f, 1012.5f);
         // weatherData.setMeasurements(22.5f, 55.0f, 1015.2f);
+
+        if (dispatcher != null) {
+            dispatcher.close(); // let the displays finish before exiting
+        }
+        if (renderer != null) {
+            renderer.close(); // draws the final frame
+        }
+        if (log != null) {
+            log.close();
+        }
     }
 }